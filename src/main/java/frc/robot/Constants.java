@@ -4,9 +4,9 @@
 
 package frc.robot;
 
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.util.AllianceFlipUtil;
+import java.util.Arrays;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
@@ -22,15 +22,19 @@ public final class Constants {
   // 0.0);
 
   public static boolean shouldFlip() {
-    return DriverStation.getAlliance().isPresent()
-        && DriverStation.getAlliance().get() == Alliance.Red;
+    return AllianceFlipUtil.shouldFlip();
   }
 
   // public static final boolean isblue = DriverStation.getAlliance().get() == Alliance.Blue;
   // public static Optional<Alliance> isred;
 
-  public static final boolean isReplayMode = false; // MAKE TRUE IF REPLAY MODE IS DESIRED
+  // MAKE TRUE IF REPLAY MODE IS DESIRED, or set AKIT_LOG_PATH to replay that log in simulation
+  public static final boolean forceReplay = false;
+  public static final boolean isReplayMode =
+      forceReplay || (!RobotBase.isReal() && System.getenv("AKIT_LOG_PATH") != null);
   public static final boolean tuningMode = true;
+  // Loop timing under "Tracer", costs time every loop so only turn on while profiling
+  public static final boolean tracingEnabled = false;
 
   public static RobotType robotType =
       isReplayMode
@@ -62,19 +66,41 @@ public final class Constants {
     public static final double flywheelSpikeDebounce = 0.3;
 
     public static final double feederRPS = 70;
-    public static final double[][] shooterLUT = {
-      {0, 0, 38},
-      {0.1151611524, 0, 38},
-      {0.3522449123, 0, 38},
-      {0.8765935905, 0, 38},
-      {1.46, 0, 42},
-      {1.7, 0, 38},
-      {1.959336833, 0, 50.81632738},
-      {2.823481946, 0, 55},
-      {3.211524819, 0, 56},
-      {4.258293028, 0, 57},
-      {5, 0, 60}
-    };
+    // Average note speed from the shooter to the speaker, the only input to time of flight until
+    // it is measured per distance
+    public static final double shotExitSpeedMetersPerSec = 9.0;
+
+    // Distance in meters, flywheel RPS (0 uses defaultShotRPS), wrist degrees, then a time of
+    // flight column of distance / shotExitSpeedMetersPerSec
+    public static final double[][] shooterLUT =
+        withTimeOfFlight(
+            new double[][] {
+              {0, 0, 38},
+              {0.1151611524, 0, 38},
+              {0.3522449123, 0, 38},
+              {0.8765935905, 0, 38},
+              {1.46, 0, 42},
+              {1.7, 0, 38},
+              {1.959336833, 0, 50.81632738},
+              {2.823481946, 0, 55},
+              {3.211524819, 0, 56},
+              {4.258293028, 0, 57},
+              {5, 0, 60}
+            });
+
+    // Moving shot solver
+    public static final double defaultShotRPS = 42.5;
+    public static final double shotLookaheadSecs = 0.02; // Pose age plus mechanism delay
+    public static final int shotSolverMaxIterations = 5;
+    public static final double shotSolverToleranceMeters = 0.01;
+
+    private static double[][] withTimeOfFlight(double[][] rows) {
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] = Arrays.copyOf(rows[i], rows[i].length + 1);
+        rows[i][rows[i].length - 1] = rows[i][0] / shotExitSpeedMetersPerSec;
+      }
+      return rows;
+    }
 
     public static class FlywheelSetpoints {
       public static final double StowSpeed = 10;
@@ -12,9 +12,8 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.util.Units;
-import frc.robot.commands.AutoAlignCommands;
 import frc.robot.subsystems.drive.Drive;
-import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.FieldGeometry;
 
 /**
  * Contains various field dimensions and useful reference points. Dimensions are in meters, and sets
@@ -37,7 +36,9 @@ public class FieldConstants {
   public static final Translation2d ampCenter =
       new Translation2d(Units.inchesToMeters(72.455), fieldWidth);
 
-  private static Pose2d ampPose = new Pose2d(ampCenter, Rotation2d.fromDegrees(-90));
+  public static final Pose2d ampPose = new Pose2d(ampCenter, Rotation2d.fromDegrees(-90));
+
+  public static final Pose2d sourcePose = new Pose2d(16, -0.1, Rotation2d.fromDegrees(180));
 
   /** Staging locations for each note */
   public static final class StagingLocations {
@@ -69,11 +70,11 @@ public class FieldConstants {
   }
 
   public static final boolean isInSpeakerWing(Drive drive) {
-    Pose2d speakerPose =
-        AllianceFlipUtil.apply(
-            new Pose2d(
-                -0.2, AutoAlignCommands.autoAlignSpeakerPoseSetter(drive), new Rotation2d(0)));
-    if (drive.getPose().minus(speakerPose).getX() > wingX) {
+    FieldGeometry.Layout field = FieldGeometry.get();
+    double robotX = drive.getPose().getX();
+    double speakerX = field.speakerAimPoint(drive.getPose().getY()).getX();
+    if (field.distanceFromAllianceWall(robotX) - field.distanceFromAllianceWall(speakerX)
+        > wingX) {
       return false;
     } else {
       return true;
@@ -81,9 +82,11 @@ public class FieldConstants {
   }
 
   public static final boolean isInSourceWing(Drive drive) {
-    Pose2d sourcePose =
-        AllianceFlipUtil.apply(new Pose2d(16, -0.1, new Rotation2d(Units.degreesToRadians(180))));
-    if (drive.getPose().minus(sourcePose).getX() > wingX) {
+    FieldGeometry.Layout field = FieldGeometry.get();
+    double robotX = drive.getPose().getX();
+    double sourceX = field.source().getX();
+    if (field.distanceFromAllianceWall(sourceX) - field.distanceFromAllianceWall(robotX)
+        > wingX) {
       return false;
     } else {
       return true;
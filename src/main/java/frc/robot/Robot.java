@@ -10,9 +10,20 @@ import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.drive.PhoenixOdometryThread;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.FieldGeometry;
+import frc.robot.util.LookupTuner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.RangedReplaySource;
+import frc.robot.util.SimHarness;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.Tracer;
+import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.NT4Publisher;
+import org.littletonrobotics.junction.wpilog.WPILOGReader;
 import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 
 /**
@@ -22,6 +33,10 @@ import org.littletonrobotics.junction.wpilog.WPILOGWriter;
  * project.
  */
 public class Robot extends LoggedRobot {
+  private static final int ROBOT_PERIODIC_TRACE = Tracer.intern("RobotPeriodic");
+  private static final int COMMAND_SCHEDULER_TRACE = Tracer.intern("CommandScheduler");
+  private static final int SIGNAL_REFRESH_TRACE = Tracer.intern("SignalRefresh");
+
   private Command m_autonomousCommand;
 
   private RobotContainer m_robotContainer;
@@ -34,6 +49,7 @@ public class Robot extends LoggedRobot {
    */
   @Override
   public void robotInit() {
+    Tracer.setEnabled(tracingEnabled);
 
     Logger.recordMetadata("ProjectName", BuildConstants.MAVEN_NAME);
     Logger.recordMetadata("BuildDate", BuildConstants.BUILD_DATE);
@@ -56,17 +72,28 @@ public class Robot extends LoggedRobot {
       case REALBOT:
         Logger.addDataReceiver(new WPILOGWriter("/U")); // Log to a USB stick
         Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
+        break;
       case REPLAYBOT:
-        // setUseTiming(false); // Run as fast as possible
-        // String logPath =
-        //     LogFileUtil
-        //         .findReplayLog(); // Pull the replay log from AdvantageScope (or prompt the user)
-        // Logger.setReplaySource(new WPILOGReader(logPath)); // Read replay log
-        // Logger.addDataReceiver(
-        //     new WPILOGWriter(
-        //         LogFileUtil.addPathSuffix(logPath, "_sim"))); // Save outputs to a new log
+        setUseTiming(false); // Run as fast as possible
+        // Pull the replay log from AKIT_LOG_PATH, AdvantageScope, or prompt the user
+        String logPath = LogFileUtil.findReplayLog();
+        // Read replay log, limited to REPLAY_START_SECONDS and REPLAY_END_SECONDS if set
+        Logger.setReplaySource(RangedReplaySource.fromEnvironment(new WPILOGReader(logPath)));
+        Logger.addDataReceiver(
+            new WPILOGWriter(
+                LogFileUtil.addPathSuffix(logPath, "_sim"))); // Save outputs to a new log
+        break;
       case SIMBOT:
-        Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
+        if (SimHarness.isEnabled()) {
+          setUseTiming(false); // HAL time is stepped by the harness instead
+          String logDir = System.getenv("SIM_HARNESS_LOG_DIR");
+          if (logDir != null) {
+            Logger.addDataReceiver(new WPILOGWriter(logDir)); // One directory per run
+          }
+        } else {
+          Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
+        }
+        break;
     }
     // See http://bit.ly/3YIzFZ6 for more information on timestamps in AdvantageKit.
     // Logger.disableDeterministicTimestamps()
@@ -81,6 +108,22 @@ public class Robot extends LoggedRobot {
     // autonomous chooser on the dashboard.
 
     m_robotContainer = new RobotContainer();
+    // Every device has requested its signal rates by now
+    CANBusPlanner.applyPlan();
+    // Odometry blocks on its signals at the planned rates, so start it only once they're set
+    PhoenixOdometryThread.startAll();
+    if (tuningMode) {
+      LookupTuner.setupTuner();
+    }
+    if (SimHarness.isEnabled()) {
+      SimHarness.start(
+          () -> m_autonomousCommand != null && m_autonomousCommand.isScheduled(),
+          () -> {
+            Command auto = m_robotContainer.getAutonomousCommand();
+            return auto != null ? auto.getName() : "None";
+          },
+          m_robotContainer::getPose);
+    }
   }
 
   /**
@@ -97,10 +140,23 @@ public class Robot extends LoggedRobot {
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
 
-    // Tracer.startTrace("RobotPeriodic");
-    // Tracer.traceFunc("CommandScheduler", CommandScheduler.getInstance()::run);
+    if (tuningMode) {
+      LookupTuner.updateMatrix(); // Reload the shooter table if it was tuned
+    }
+    Tracer.startTrace(ROBOT_PERIODIC_TRACE);
+    // Pick this loop's alliance once, everything after reads the cached field geometry
+    FieldGeometry.update();
+    // Refresh every device's signals at once, before any subsystem reads them
+    Tracer.traceFunc(SIGNAL_REFRESH_TRACE, StatusSignalRegistry::refreshAll);
+    Tracer.startTrace(COMMAND_SCHEDULER_TRACE);
     CommandScheduler.getInstance().run();
-    // Tracer.endTrace();
+    Tracer.endTrace();
+    Tracer.endTrace();
+    PhoenixConfigApplier.getInstance().periodic();
+    CANBusPlanner.periodic();
+    if (SimHarness.isEnabled()) {
+      SimHarness.step(); // Last, so the whole loop runs at one timestamp
+    }
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
@@ -15,9 +15,6 @@ import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Transform2d;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -52,10 +49,9 @@ import frc.robot.subsystems.shooter.wrist.ShooterWrist;
 import frc.robot.subsystems.shooter.wrist.ShooterWristIO;
 import frc.robot.subsystems.shooter.wrist.ShooterWristIOSim;
 import frc.robot.subsystems.shooter.wrist.ShooterWristIOTalonFX;
-import frc.robot.util.AllianceFlipUtil;
-import frc.robot.util.Lookup;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.ShotSolver;
 import org.littletonrobotics.junction.AutoLogOutput;
-import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 
 /**
@@ -74,6 +70,7 @@ public class RobotContainer {
   private Rollers rollers;
   private IntakeWrist intakeWrist;
   private Indexer indexer;
+  private ShotSolver shotSolver;
 
   /* Controllers */
   private final CommandXboxController driver =
@@ -95,6 +92,8 @@ public class RobotContainer {
         drive =
             new Drive(
                 new GyroIOPigeon2(true), Drive.createTalonFXModules(), Drive.createRealCameras());
+        // Configs were sent to every device in parallel, wait for them before anything runs
+        PhoenixConfigApplier.getInstance().awaitIdle(5.0);
       }
 
       case SIMBOT -> {
@@ -113,13 +112,16 @@ public class RobotContainer {
         rollers = new Rollers(new RollersIO() {});
         intakeWrist = new IntakeWrist(new IntakeWristIO() {});
         indexer = new Indexer(new IndexerIO() {});
-        drive = new Drive(new GyroIO() {}, Drive.createSimModules(), Drive.createSimCameras());
+        drive =
+            new Drive(new GyroIO() {}, Drive.createReplayModules(), Drive.createReplayCameras());
       }
       default -> {
         break;
       }
     }
 
+    shotSolver = new ShotSolver(drive);
+
     // NamedCommands.registerCommand("AutoAlignShoot", AutoAlignShootAnywhereCommand());
     NamedCommands.registerCommand("shoot bud", autoShoot());
     NamedCommands.registerCommand("stop bud", stopFlywheels().withTimeout(0.2));
@@ -201,13 +203,18 @@ public class RobotContainer {
     return Commands.parallel(
         AutoAlign(),
         rumbleIfNotSpeakerWing(),
-        Commands.parallel(wristToSpeakerForever(), shoot()).onlyIf(() -> isInSpeakerWing(drive)));
+        Commands.parallel(wristToSpeakerForever(), shootOnTheMove())
+            .onlyIf(() -> isInSpeakerWing(drive)));
   }
 
   public Command AutoAlign() {
     return Commands.sequence(
         Commands.waitUntil(() -> isInSpeakerWing(drive)),
-        AutoAlignCommands.autoAlignSpeakerCommand(drive, driver)
+        AutoAlignCommands.autoAlignSpeakerCommand(
+                drive,
+                shotSolver,
+                () -> -joystickDeadbandApply(driver.getLeftY()) * DriveConstants.MAX_LINEAR_SPEED,
+                () -> -joystickDeadbandApply(driver.getLeftX()) * DriveConstants.MAX_LINEAR_SPEED)
             .onlyIf(() -> isInSpeakerWing(drive)));
   }
 
@@ -234,6 +241,20 @@ public class RobotContainer {
         indexer.setSpeed(0).withTimeout(0.25));
   }
 
+  /**
+   * Feeds a note once the flywheels, heading and wrist all match the moving shot, keeping the
+   * flywheels at its speed until then. Aiming is left to the commands running alongside it.
+   */
+  public Command shootOnTheMove() {
+    return Commands.sequence(
+            indexer.prepNote().withTimeout(0.25),
+            Commands.waitUntil(this::isAimedAtSpeaker),
+            Commands.waitUntil(flywheels::flywheelsSpunUp),
+            indexer.setSpeed(-0.4).withTimeout(1),
+            indexer.setSpeed(0).withTimeout(0.25))
+        .deadlineWith(flywheels.runFlywheelVelocity(() -> shotSolver.get().flywheelRPS()));
+  }
+
   public Command autoShoot() {
     return Commands.parallel(shoot());
   }
@@ -306,38 +327,15 @@ public class RobotContainer {
     return shooterWrist.PIDCommandForever(this::getAngle);
   }
 
-  private Transform2d getEstimatedTransform() {
-    return new Transform2d(
-        new Translation2d(
-            drive.getVelocity().vxMetersPerSecond * 0.02,
-            drive.getVelocity().vyMetersPerSecond * 0.02),
-        new Rotation2d(0.0));
-  }
-
-  // Returns the estimated robot position
-
-  private Pose2d getEstimatedPosition() {
-    return drive.getPose().plus(getEstimatedTransform().inverse());
-  }
-
-  // Returns the distance between the robot's next estimated position and the
-  // speaker position
+  // Returns the distance from the robot's projected position to the moving shot's virtual target
   @AutoLogOutput(key = "DistanceAway")
   private double getEstimatedDistance() {
-    Transform2d targetTransform =
-        getEstimatedPosition()
-            .minus(
-                AllianceFlipUtil.apply(
-                    new Pose2d(
-                        -0.2,
-                        AutoAlignCommands.autoAlignSpeakerPoseSetter(drive),
-                        new Rotation2d(0))));
-    return targetTransform.getTranslation().getNorm();
+    return shotSolver.get().distanceMeters();
   }
 
   @AutoLogOutput(key = "PointedAtSpeaker")
   public boolean isPointedAtSpeaker() {
-    return AutoAlignCommands.pointedAtSpeaker(drive);
+    return AutoAlignCommands.pointedAtSpeaker(drive, shotSolver);
   }
 
   @AutoLogOutput(key = "FlywheelsSpunUp")
@@ -347,16 +345,18 @@ public class RobotContainer {
 
   @AutoLogOutput(key = "AimedAtSpeaker")
   public boolean isAimedAtSpeaker() {
-    return AutoAlignCommands.pointedAtSpeaker(drive) && shooterWrist.atSetpoint();
+    return AutoAlignCommands.pointedAtSpeaker(drive, shotSolver) && shooterWrist.atSetpoint();
   }
 
-  // Gets angle based on distance from speaker, taking into account the actual
-  // shooting position
+  // Gets the wrist angle for the moving shot, solved once per loop
   @AutoLogOutput(key = "ShootAnywhereAngle")
   private double getAngle() {
-    double angle = Lookup.getWristAngle(getEstimatedDistance());
-    Logger.recordOutput("ShootAnywhereAngle", angle);
-    return angle;
+    return shotSolver.get().wristAngleRad();
+  }
+
+  /** Returns the drive's estimated pose on the field. */
+  public Pose2d getPose() {
+    return drive.getPose();
   }
 
   /**
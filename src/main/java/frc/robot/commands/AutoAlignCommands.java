@@ -2,24 +2,27 @@ package frc.robot.commands;
 
 import static frc.robot.Constants.*;
 import static frc.robot.Constants.shouldFlip;
-import static frc.robot.FieldConstants.wingX;
+import static frc.robot.FieldConstants.isInSourceWing;
 import static frc.robot.commands.CommandConstants.*;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.Commands;
-import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import frc.robot.subsystems.drive.Drive;
-import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.FieldGeometry;
+import frc.robot.util.ShotSolver;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 import org.littletonrobotics.junction.Logger;
 
 public class AutoAlignCommands extends Command {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+
   // Determines if the heading should be flipped based on the alliance
   public static double headingFlip() {
     if (shouldFlip()) {
@@ -30,84 +33,64 @@ public class AutoAlignCommands extends Command {
   }
 
   public static double autoAlignSpeakerPoseSetter(Drive drive) {
-    if (drive.getPose().getY() > 6.25) {
-      return (Units.inchesToMeters(197.765)); // aim more left
-    } else if (drive.getPose().getY() >= 4.75) {
-      return ((5 + 6.12) / 2); // aim middle
-    } else if (4.75 >= drive.getPose().getY()) {
-      return (Units.inchesToMeters(238.815)); // aim more right
-    } else {
-      return ((5 + 6.12) / 2); // defualt aim middle
-    }
+    // Aims more left or right of the middle depending on which side of the speaker we are on
+    return FieldGeometry.get().speakerAimPoint(drive.getPose().getY()).getY();
   }
 
   public static double[] setAutoAlignConstants() {
     if (robotType == RobotType.SIMBOT || robotType == RobotType.REPLAYBOT) {
       double[] arr;
-      arr = new double[] {simAutoTurnSpeakerkP, simAutoTurnSpeakerkI, simAutoTurnSpeakerkD};
+      arr = new double[] {simAutoAlignHeadingkP, simAutoAlignHeadingkI, simAutoAlignHeadingkD};
       return (arr);
     } else {
       double[] arr;
-      arr = new double[] {realAutoTurnSpeakerkP, realAutoTurnSpeakerkI, realAutoTurnSpeakerkD};
+      arr = new double[] {realAutoAlignHeadingkP, realAutoAlignHeadingkI, realAutoAlignHeadingkD};
       return (arr);
     }
   }
 
   public static boolean isNotInWing = false;
 
-  public static Command autoAlignSourceCommand(Drive drive, CommandXboxController controller) {
-    return Commands.run(
+  /**
+   * Turns the robot's back to the source while the driver keeps control of translation. The
+   * robot only turns while within {@link frc.robot.FieldConstants#wingX} of the source.
+   *
+   * @param xSupplier Alliance relative x velocity in meters per second, forward away from the
+   *     driver station.
+   * @param ySupplier Alliance relative y velocity in meters per second, left positive.
+   */
+  public static Command autoAlignSourceCommand(
+      Drive drive, DoubleSupplier xSupplier, DoubleSupplier ySupplier) {
+    HeadingController controller = createHeadingController();
+    return alignCommand(
+        drive,
+        controller,
+        xSupplier,
+        ySupplier,
         () -> {
-          // Get the position of the speaker on the field, adjusted for alliance
-          Pose2d sourcePose =
-              AllianceFlipUtil.apply(
-                  new Pose2d(16, -0.1, new Rotation2d(Units.degreesToRadians(180))));
-          Logger.recordOutput("Odometry/SourcePose", sourcePose);
-          if (drive.getPose().minus(sourcePose).getX() > wingX) {
-            isNotInWing = true;
-          } else {
-            isNotInWing = false;
-            // Create a new PID controller for controlling the angle
-            final double[] anglePIDarr = setAutoAlignConstants();
-            PIDController angleController =
-                new PIDController(anglePIDarr[0], anglePIDarr[1], anglePIDarr[2]);
-            // Set tolerance for the PID controller
-            angleController.setTolerance(0.08, 0.01);
-            // Calculate the transformation from the robot's pose to the speaker's pose
-            Transform2d targetTransform = drive.getPose().minus(sourcePose);
-            // Calculate the target direction with the possible heading flip
-            Rotation2d targetDirection =
-                new Rotation2d(targetTransform.getX(), targetTransform.getY())
-                    .plus(new Rotation2d(Units.degreesToRadians(headingFlip())));
-            ;
-            // Log targetDirection to easily identify if it is correct
-            Logger.recordOutput("Odometry/AutoAimSourceDirection", targetDirection);
-            // Set the PID controller's setpoint to the target direction
-            angleController.setSetpoint(MathUtil.angleModulus(targetDirection.getRadians()));
-            // Calculate the angular velocity to align with the target direction
-            double omega =
-                angleController.calculate(
-                    MathUtil.angleModulus(drive.getRotation().getRadians()),
-                    MathUtil.angleModulus(targetDirection.getRadians()));
-            omega = Math.copySign(omega * omega, omega); // Square the value and preserve the sign
-            // Command the drive to run at the calculated angular velocity
-            drive.runVelocity(
-                ChassisSpeeds.fromFieldRelativeSpeeds(
-                    0, 0, omega * drive.getMaxAngularSpeedRadPerSec(), drive.getRotation()));
-            // If the robot is aligned, stop the drive and close the PID controller
-            if (angleController.atSetpoint()) {
-              drive.stopCmd();
-              angleController.close();
-            }
-          }
+          isNotInWing = !isInSourceWing(drive);
+          return !isNotInWing;
         },
-        drive);
+        () -> {
+          Translation2d source = FieldGeometry.get().source().getTranslation();
+          Pose2d pose = drive.getPose();
+          return Math.atan2(pose.getY() - source.getY(), pose.getX() - source.getX());
+        },
+        () -> {
+          Translation2d source = FieldGeometry.get().source().getTranslation();
+          Pose2d pose = drive.getPose();
+          ChassisSpeeds velocity = drive.getVelocity();
+          return HeadingController.bearingRate(
+              source.getX() - pose.getX(),
+              source.getY() - pose.getY(),
+              velocity.vxMetersPerSecond,
+              velocity.vyMetersPerSecond);
+        });
   }
 
   public static boolean pointedAtSource(Drive drive) {
     // Get the position of the source on the field, adjusted for alliance
-    Pose2d sourcePose =
-        AllianceFlipUtil.apply(new Pose2d(16, -0.1, new Rotation2d(Units.degreesToRadians(180))));
+    Pose2d sourcePose = FieldGeometry.get().source();
     // Calculate the transformation from the robot's pose to the source's pose
     Transform2d targetTransform = drive.getPose().minus(sourcePose);
     // Calculate the target direction considering heading flip
@@ -126,65 +109,88 @@ public class AutoAlignCommands extends Command {
     }
   }
 
-  public static Command autoAlignSpeakerCommand(Drive drive, CommandXboxController controller) {
-    return Commands.run(
+  /**
+   * Points the shooter at the moving shot's virtual target while the driver keeps control of
+   * translation, turning with the target as the robot drives past it.
+   *
+   * @param xSupplier Alliance relative x velocity in meters per second, forward away from the
+   *     driver station.
+   * @param ySupplier Alliance relative y velocity in meters per second, left positive.
+   */
+  public static Command autoAlignSpeakerCommand(
+      Drive drive, ShotSolver solver, DoubleSupplier xSupplier, DoubleSupplier ySupplier) {
+    HeadingController controller = createHeadingController();
+    return alignCommand(
+        drive,
+        controller,
+        xSupplier,
+        ySupplier,
+        () -> true,
+        () -> solver.get().heading().getRadians(),
+        () -> solver.get().headingVelocityRadPerSec());
+  }
+
+  private static HeadingController createHeadingController() {
+    final double[] anglePIDarr = setAutoAlignConstants();
+    return new HeadingController(anglePIDarr[0], anglePIDarr[1], anglePIDarr[2]);
+  }
+
+  // Drives with the driver's translation and the controller's rotation, without allocating
+  private static Command alignCommand(
+      Drive drive,
+      HeadingController controller,
+      DoubleSupplier xSupplier,
+      DoubleSupplier ySupplier,
+      BooleanSupplier shouldAlign,
+      DoubleSupplier goalHeading,
+      DoubleSupplier goalAngularVelocity) {
+    ChassisSpeeds speeds = new ChassisSpeeds();
+    return new FunctionalCommand(
+        () ->
+            controller.reset(
+                drive.getRotation().getRadians(), drive.getVelocity().omegaRadiansPerSecond),
         () -> {
-          // Get the position of the speaker on the field, adjusted for alliance
-          Pose2d speakerPose =
-              AllianceFlipUtil.apply(
-                  new Pose2d(-0.2, autoAlignSpeakerPoseSetter(drive), new Rotation2d(0)));
-          Logger.recordOutput("Odometry/SpeakerPose", speakerPose);
-          // Create a new PID controller for controlling the angle
-          final double[] anglePIDarr = setAutoAlignConstants();
-          PIDController angleController =
-              new PIDController(anglePIDarr[0], anglePIDarr[1], anglePIDarr[2]);
-          // Set tolerance for the PID controller
-          angleController.setTolerance(0.08, 0.01);
-          // Calculate the transformation from the robot's pose to the speaker's pose
-          Transform2d targetTransform = drive.getPose().minus(speakerPose);
-          // Calculate the target direction with the possible heading flip
-          Rotation2d targetDirection =
-              new Rotation2d(targetTransform.getX(), targetTransform.getY())
-                  .plus(new Rotation2d(Units.degreesToRadians(headingFlip())));
-          ;
-          // Log targetDirection to easily identify if it is correct
-          Logger.recordOutput("Odometry/AutoAimSpeakerDirection", targetDirection);
-          // Set the PID controller's setpoint to the target direction
-          angleController.setSetpoint(MathUtil.angleModulus(targetDirection.getRadians()));
-          // Calculate the angular velocity to align with the target direction
-          double omega =
-              angleController.calculate(
-                  MathUtil.angleModulus(drive.getRotation().getRadians()),
-                  MathUtil.angleModulus(targetDirection.getRadians()));
-          omega = Math.copySign(omega * omega, omega); // Square the value and preserve the sign
-          // // Command the drive to run at the calculated angular velocity
-          drive.runVelocity(
-              ChassisSpeeds.fromFieldRelativeSpeeds(
-                  0, 0, omega * drive.getMaxAngularSpeedRadPerSec(), drive.getRotation()));
-          // // If the robot is aligned, stop the drive and close the PID controller
-          if (angleController.atSetpoint()) {
-            drive.stopCmd();
-            angleController.close();
+          double heading = drive.getRotation().getRadians();
+          double omega = 0.0;
+          if (shouldAlign.getAsBoolean()) {
+            omega =
+                controller.calculate(
+                    heading,
+                    drive.getVelocity().omegaRadiansPerSecond,
+                    goalHeading.getAsDouble(),
+                    goalAngularVelocity.getAsDouble(),
+                    LOOP_PERIOD_SECS);
+          } else {
+            controller.reset(heading, drive.getVelocity().omegaRadiansPerSecond);
           }
+          omega =
+              MathUtil.clamp(
+                  omega, -drive.getMaxAngularSpeedRadPerSec(), drive.getMaxAngularSpeedRadPerSec());
+          Logger.recordOutput("AutoAlign/HeadingError", controller.getError());
+          Logger.recordOutput("AutoAlign/SetpointHeading", controller.getSetpoint());
+          Logger.recordOutput("AutoAlign/AtGoal", controller.atGoal());
+
+          // Same alliance relative translation as teleop, rotated into the robot's frame
+          double flip = shouldFlip() ? -1.0 : 1.0;
+          double fieldX = xSupplier.getAsDouble() * flip;
+          double fieldY = ySupplier.getAsDouble() * flip;
+          double cos = Math.cos(heading);
+          double sin = Math.sin(heading);
+          speeds.vxMetersPerSecond = fieldX * cos + fieldY * sin;
+          speeds.vyMetersPerSecond = -fieldX * sin + fieldY * cos;
+          speeds.omegaRadiansPerSecond = omega;
+          drive.runVelocity(speeds);
         },
+        (interrupted) -> {},
+        () -> false,
         drive);
   }
 
-  public static boolean pointedAtSpeaker(Drive drive) {
-    // Get the position of the speaker on the field, adjusted for alliance
-    Pose2d speakerPose =
-        AllianceFlipUtil.apply(
-            new Pose2d(-0.2, autoAlignSpeakerPoseSetter(drive), new Rotation2d(0)));
-    // Calculate the transformation from the robot's pose to the speaker's pose
-    Transform2d targetTransform = drive.getPose().minus(speakerPose);
-    // Calculate the target direction considering heading flip
-    Rotation2d targetDirection =
-        new Rotation2d(targetTransform.getX(), targetTransform.getY())
-            .plus(new Rotation2d(headingFlip()));
-    ;
+  public static boolean pointedAtSpeaker(Drive drive, ShotSolver solver) {
+    // Compare against the moving shot's heading, wrapped so it works across +-180 degrees
+    Rotation2d error = drive.getRotation().minus(solver.get().heading());
     // Check if the robot's current rotation is within the alignment threshold
-    if (Math.abs(drive.getRotation().getDegrees() - targetDirection.getDegrees())
-        < autoAlignAngleThreshold) {
+    if (Math.abs(error.getDegrees()) < autoAlignAngleThreshold) {
       return true; // Robot is pointed at the speaker
     } else {
       return false; // Robot is not pointed at the speaker
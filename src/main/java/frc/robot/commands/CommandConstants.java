@@ -3,12 +3,18 @@ package frc.robot.commands;
 public class CommandConstants {
   // auto align constants
   public static final double autoAlignAngleThreshold = 5;
+  public static final double autoAlignMaxAngularVelocity = 8.0; // rad/s, total turn rate
+  public static final double autoAlignMaxAngularAccel = 20.0; // rad/s^2
+  public static final double autoAlignAngleToleranceRad = 0.08;
+  public static final double autoAlignVelocityToleranceRadPerSec = 0.1;
 
-  public static final double simAutoTurnSpeakerkP = 1.3;
-  public static final double simAutoTurnSpeakerkI = 0;
-  public static final double simAutoTurnSpeakerkD = 0;
+  // Heading PID gains, output in rad/s per rad of error. Converted from the old squared turn gains
+  // (kP 1.3 sim, 2 real) to give the same turn rate at autoAlignAngleToleranceRad, retune on robot
+  public static final double simAutoAlignHeadingkP = 2.1;
+  public static final double simAutoAlignHeadingkI = 0;
+  public static final double simAutoAlignHeadingkD = 0;
 
-  public static final double realAutoTurnSpeakerkP = 2;
-  public static final double realAutoTurnSpeakerkI = 0;
-  public static final double realAutoTurnSpeakerkD = 0;
+  public static final double realAutoAlignHeadingkP = 4.9;
+  public static final double realAutoAlignHeadingkI = 0;
+  public static final double realAutoAlignHeadingkD = 0;
 }
@@ -0,0 +1,121 @@
+package frc.robot.commands;
+
+import static frc.robot.commands.CommandConstants.*;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+
+/**
+ * Turns the robot to face a field target that may be moving relative to it.
+ *
+ * <p>The controller keeps a profiled heading setpoint between loops. Each loop the setpoint's turn
+ * rate moves toward the goal's own rate plus whatever it needs to close the gap, changing by no
+ * more than {@link CommandConstants#autoAlignMaxAngularAccel}. {@link
+ * CommandConstants#autoAlignMaxAngularVelocity} caps the total turn rate, goal rate included. The
+ * output is that setpoint velocity as feedforward plus a PID correction toward the setpoint. When
+ * the robot drives past a target, the goal turns at a steady rate and the feedforward carries the
+ * robot through it, so the PID only cleans up the small error left over.
+ *
+ * <p>Build one per command and call {@link #reset} when the command starts. After that, {@link
+ * #calculate} only does arithmetic on primitives, so it doesn't allocate. Angles are in radians,
+ * field relative.
+ */
+public class HeadingController {
+  private final PIDController feedback;
+  private final double maxVelocity;
+  private final double maxAcceleration;
+
+  private double setpoint = 0.0;
+  private double setpointVelocity = 0.0;
+  private double goal = 0.0;
+  private double goalVelocity = 0.0;
+  private double measurement = 0.0;
+  private double measuredVelocity = 0.0;
+
+  public HeadingController(double kP, double kI, double kD) {
+    this(kP, kI, kD, autoAlignMaxAngularVelocity, autoAlignMaxAngularAccel);
+  }
+
+  public HeadingController(
+      double kP, double kI, double kD, double maxVelocity, double maxAcceleration) {
+    feedback = new PIDController(kP, kI, kD);
+    feedback.enableContinuousInput(-Math.PI, Math.PI);
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+  }
+
+  /** Starts the profile from the robot's current heading and turn rate. */
+  public void reset(double heading, double angularVelocity) {
+    setpoint = MathUtil.angleModulus(heading);
+    setpointVelocity = angularVelocity;
+    measurement = setpoint;
+    measuredVelocity = angularVelocity;
+    feedback.reset();
+  }
+
+  /**
+   * Steps the profile and returns the angular velocity to command.
+   *
+   * @param heading The robot's heading.
+   * @param angularVelocity The robot's measured turn rate, used to tell when it has settled.
+   * @param goalHeading The heading that faces the target.
+   * @param goalAngularVelocity How fast the goal heading is turning.
+   * @param dt Time since the last call, in seconds.
+   */
+  public double calculate(
+      double heading,
+      double angularVelocity,
+      double goalHeading,
+      double goalAngularVelocity,
+      double dt) {
+    measurement = MathUtil.angleModulus(heading);
+    measuredVelocity = angularVelocity;
+    goal = MathUtil.angleModulus(goalHeading);
+    goalVelocity = goalAngularVelocity;
+
+    // Fastest approach that can still stop on the goal, relative to the goal's own motion
+    double error = MathUtil.angleModulus(goal - setpoint);
+    double approach = Math.min(maxVelocity, Math.sqrt(2.0 * maxAcceleration * Math.abs(error)));
+    double desiredVelocity =
+        MathUtil.clamp(goalVelocity + Math.copySign(approach, error), -maxVelocity, maxVelocity);
+    double maxStep = maxAcceleration * dt;
+    setpointVelocity += MathUtil.clamp(desiredVelocity - setpointVelocity, -maxStep, maxStep);
+    setpoint = MathUtil.angleModulus(setpoint + setpointVelocity * dt);
+    if (Math.abs(MathUtil.angleModulus(goal - setpoint)) < maxStep * dt
+        && Math.abs(setpointVelocity - goalVelocity) < maxStep) {
+      // Close enough to land on the goal this step
+      setpoint = goal;
+      setpointVelocity = goalVelocity;
+    }
+
+    return setpointVelocity + feedback.calculate(measurement, setpoint);
+  }
+
+  /** Returns the heading error from the last call to {@link #calculate}. */
+  public double getError() {
+    return MathUtil.angleModulus(goal - measurement);
+  }
+
+  /** Returns the profiled heading the robot is currently tracking. */
+  public double getSetpoint() {
+    return setpoint;
+  }
+
+  /** Returns whether the robot is facing the goal and turning with it. */
+  public boolean atGoal() {
+    return Math.abs(getError()) < autoAlignAngleToleranceRad
+        && Math.abs(measuredVelocity - goalVelocity) < autoAlignVelocityToleranceRadPerSec;
+  }
+
+  /**
+   * Returns how fast the bearing from the robot to a fixed field point turns as the robot moves.
+   *
+   * @param dx Field x distance from the robot to the point.
+   * @param dy Field y distance from the robot to the point.
+   * @param vx Robot field relative x velocity.
+   * @param vy Robot field relative y velocity.
+   */
+  public static double bearingRate(double dx, double dy, double vx, double vy) {
+    return (dy * vx - dx * vy) / Math.max(dx * dx + dy * dy, 1e-6);
+  }
+}
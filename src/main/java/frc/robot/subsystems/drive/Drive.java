@@ -22,11 +22,15 @@ import static frc.robot.subsystems.drive.DriveConstants.CAMERA_THREE_DIST_COEFFS
 import static frc.robot.subsystems.drive.DriveConstants.CAMERA_THREE_MATRIX;
 import static frc.robot.subsystems.drive.DriveConstants.CAMERA_TWO_DIST_COEFFS;
 import static frc.robot.subsystems.drive.DriveConstants.CAMERA_TWO_MATRIX;
+import static frc.robot.subsystems.drive.DriveConstants.DEFAULT_VISION_STD_DEVS;
 import static frc.robot.subsystems.drive.DriveConstants.DRIVE_BASE_RADIUS;
 import static frc.robot.subsystems.drive.DriveConstants.MAX_ANGULAR_SPEED;
 import static frc.robot.subsystems.drive.DriveConstants.MAX_LINEAR_SPEED;
+import static frc.robot.subsystems.drive.DriveConstants.ODOMETRY_STATE_STD_DEVS;
+import static frc.robot.subsystems.drive.DriveConstants.POSE_HISTORY_CAPACITY;
 import static frc.robot.subsystems.drive.DriveConstants.TRACK_WIDTH_X;
 import static frc.robot.subsystems.drive.DriveConstants.TRACK_WIDTH_Y;
+import static frc.robot.subsystems.drive.DriveConstants.VISION_BATCH_CAPACITY;
 import static frc.robot.subsystems.drive.DriveConstants.backLeft;
 import static frc.robot.subsystems.drive.DriveConstants.backRight;
 import static frc.robot.subsystems.drive.DriveConstants.camera1Name;
@@ -52,6 +56,7 @@ import static frc.robot.subsystems.drive.DriveConstants.camera3PoseYaw;
 import static frc.robot.subsystems.drive.DriveConstants.camera3PoseZ;
 import static frc.robot.subsystems.drive.DriveConstants.frontLeft;
 import static frc.robot.subsystems.drive.DriveConstants.frontRight;
+import static frc.robot.subsystems.drive.DriveConstants.moduleLimits;
 import static frc.robot.subsystems.drive.DriveConstants.realPathFollowRotationkD;
 import static frc.robot.subsystems.drive.DriveConstants.realPathFollowRotationkI;
 import static frc.robot.subsystems.drive.DriveConstants.realPathFollowRotationkP;
@@ -65,7 +70,6 @@ import static frc.robot.subsystems.drive.DriveConstants.simPathFollowTranslation
 import static frc.robot.subsystems.drive.DriveConstants.simPathFollowTranslationkI;
 import static frc.robot.subsystems.drive.DriveConstants.simPathFollowTranslationkP;
 
-import com.google.common.collect.Streams;
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.pathfinding.Pathfinding;
 import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
@@ -73,7 +77,6 @@ import com.pathplanner.lib.util.PIDConstants;
 import com.pathplanner.lib.util.PathPlannerLogging;
 import com.pathplanner.lib.util.ReplanningConfig;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
-import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
@@ -88,53 +91,75 @@ import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.RobotType;
+import frc.robot.subsystems.drive.limits.SwerveSetpoint;
+import frc.robot.subsystems.drive.limits.SwerveSetpointGenerator;
+import frc.robot.subsystems.vision.AprilTagGeometry;
 import frc.robot.subsystems.vision.Vision;
 import frc.robot.subsystems.vision.Vision.VisionConstants;
+import frc.robot.subsystems.vision.VisionEstimationEngine;
 import frc.robot.subsystems.vision.VisionHelper;
 import frc.robot.subsystems.vision.VisionIO;
 import frc.robot.subsystems.vision.VisionIOReal;
+import frc.robot.subsystems.vision.VisionIOReplay;
 import frc.robot.subsystems.vision.VisionIOSim;
+import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.AllocationCounter;
 import frc.robot.util.LocalADStarAK;
 import frc.robot.util.LoggedTunableNumber;
-import java.io.File;
+import frc.robot.util.SimHarness;
+import frc.robot.util.Tracer;
 import java.util.Arrays;
-import java.util.NoSuchElementException;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 import org.photonvision.targeting.PhotonPipelineResult;
 
 public class Drive extends SubsystemBase {
+  private static final int PERIODIC_TRACE = Tracer.intern("Drive");
+  private static final int INPUTS_TRACE = Tracer.intern("Inputs");
+  private static final int ODOMETRY_TRACE = Tracer.intern("Odometry");
+  private static final int VISION_TRACE = Tracer.intern("Vision");
+  // Logged in place of setpoints while disabled
+  private static final SwerveModuleState[] NO_STATES = new SwerveModuleState[] {};
 
-  // Odometry lock for sychronized odometry updates
-
-  // You lock here because odometry calculations often involve reading from and-
-  // writing to shared variables that represent the state of the robot, such as its-
-  // position, orientation, and velocity. These variables are updated based on sensor inputs,
-  // which may be collected in different threads or subsystems. Using a lock prevents multiple
-  // threads from-x
-  // modifying these shared variables simultaneously, which can lead to corrupted data and
-  // inaccurate odometry.
-
-  static final Lock odometryLock = new ReentrantLock();
   private final GyroIO gyroIO;
   private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
   private final Vision[] cameras;
   public static AprilTagFieldLayout fieldTags;
   private final Module[] modules; // FL, FR, BL, BR
+  private final ModuleCommandBatch moduleCommands;
+  // Reused to compute measured speeds for the state snapshot
+  private final SwerveModuleState[] measuredModuleStates;
+  // Stopped modules turned to an X, each pointing out from the center
+  private final Rotation2d[] xLockHeadings;
+  private final SwerveModuleState[] xLockStates;
+  // The setpoint generator restarts from the measured states on the first enabled loop
+  private boolean wasDisabled = true;
+  // Published once per loop in periodic, read by every getter
+  private DriveState state =
+      new DriveState(0, 0.0, new Pose2d(), new ChassisSpeeds(), new ChassisSpeeds());
   // Drive kinematics and pose estimator for position tracking
   private SwerveDriveKinematics kinematics = new SwerveDriveKinematics(getModuleTranslations());
+  // Keeps commanded module setpoints within the drive and steering limits
+  private final SwerveSetpointGenerator setpointGenerator =
+      new SwerveSetpointGenerator(getModuleTranslations(), moduleLimits);
   private Pose2d pose = new Pose2d();
   private Rotation2d rawGyroRotation = new Rotation2d();
-  private SwerveModulePosition[] lastModulePositions = // For delta tracking
+  private final SwerveModulePosition[] lastModulePositions = // For delta tracking
+      new SwerveModulePosition[] {
+        new SwerveModulePosition(),
+        new SwerveModulePosition(),
+        new SwerveModulePosition(),
+        new SwerveModulePosition()
+      };
+  // Time-aligns the module and gyro sample streams into frames for the estimator
+  private final OdometryFusion odometryFusion = new OdometryFusion(4);
+  // Scratch array reused by updateOdom so integrating samples doesn't allocate
+  private final SwerveModulePosition[] odometryModuleDeltas =
       new SwerveModulePosition[] {
         new SwerveModulePosition(),
         new SwerveModulePosition(),
@@ -144,7 +169,11 @@ public class Drive extends SubsystemBase {
   private SwerveDrivePoseEstimator poseEstimator =
       new SwerveDrivePoseEstimator(kinematics, rawGyroRotation, lastModulePositions, pose);
   // Vector<N3> odoStdDevs = VecBuilder.fill(0.3, 0.3, 0.01);
-  private double lastEstTimestamp = 0.0;
+  // poseEstimator only tracks odometry, vision is fused on top of it here
+  private final VisionFusion visionFusion;
+  // Solves camera poses off the main loop, results are applied the loop after submission
+  private final VisionEstimationEngine visionEngine;
+  private final double[] lastSubmittedVisionTimestamps;
 
   public static final VisionConstants Cam1Constants =
       new VisionConstants(
@@ -188,11 +217,32 @@ public class Drive extends SubsystemBase {
     for (int i = 0; i < moduleIOs.length; i++) {
       modules[i] = new Module(moduleIOs[i]);
     }
-    PhoenixOdometryThread.getInstance().start();
+    moduleCommands = new ModuleCommandBatch(modules);
+    measuredModuleStates = new SwerveModuleState[modules.length];
+    xLockHeadings = new Rotation2d[modules.length];
+    xLockStates = new SwerveModuleState[modules.length];
+    Translation2d[] moduleTranslations = getModuleTranslations();
+    for (int i = 0; i < modules.length; i++) {
+      measuredModuleStates[i] = new SwerveModuleState();
+      xLockHeadings[i] = moduleTranslations[i].getAngle();
+      xLockStates[i] = new SwerveModuleState(0.0, xLockHeadings[i]);
+    }
 
     for (int i = 0; i < visionIOs.length; i++) {
       cameras[i] = new Vision(visionIOs[i]);
     }
+    // One source per camera plus one for addVisionMeasurement
+    visionFusion =
+        new VisionFusion(
+            cameras.length + 1,
+            POSE_HISTORY_CAPACITY,
+            VISION_BATCH_CAPACITY,
+            ODOMETRY_STATE_STD_DEVS);
+    visionEngine =
+        new VisionEstimationEngine(
+            cameras.length, robotType == RobotType.REPLAYBOT || SimHarness.isEnabled());
+    lastSubmittedVisionTimestamps = new double[cameras.length];
+    Arrays.fill(lastSubmittedVisionTimestamps, Double.NEGATIVE_INFINITY);
 
     VisionIOSim.pose = this::getPose3d;
 
@@ -243,9 +293,7 @@ public class Drive extends SubsystemBase {
             MAX_LINEAR_SPEED,
             DRIVE_BASE_RADIUS,
             new ReplanningConfig()),
-        () ->
-            DriverStation.getAlliance().isPresent()
-                && DriverStation.getAlliance().get() == Alliance.Red,
+        AllianceFlipUtil::shouldFlip,
         this);
     // AutoBuilder.configureHolonomic(
     //   this::getPose,
@@ -273,19 +321,9 @@ public class Drive extends SubsystemBase {
           Logger.recordOutput("Odometry/TrajectorySetpoint", targetPose);
         });
 
-    try {
-      fieldTags =
-          new AprilTagFieldLayout(
-              Filesystem.getDeployDirectory()
-                  .toPath()
-                  .resolve("vision" + File.separator + "2024-crescendo.json"));
-      System.out.println("Successfully loaded tag map");
-      Logger.recordOutput("Odometry/ Tags loaded?", true);
-    } catch (Exception e) {
-      System.err.println("Failed to load tag map");
-      fieldTags = AprilTagFields.k2024Crescendo.loadAprilTagLayoutField();
-      Logger.recordOutput("Odometry/ Tags loaded?", false);
-    }
+    fieldTags = AprilTagGeometry.getInstance().getLayout();
+    Logger.recordOutput(
+        "Odometry/ Tags loaded?", AprilTagGeometry.getInstance().isLoadedFromDeploy());
   }
 
   /**
@@ -316,6 +354,21 @@ public class Drive extends SubsystemBase {
     };
   }
 
+  /**
+   * Constructs an array of swerve module ios for log replay, named like the real modules so they
+   * read the same log entries.
+   *
+   * @return The array of swerve module ios.
+   */
+  public static ModuleIO[] createReplayModules() {
+    return new ModuleIO[] {
+      new ModuleIOReplay(frontLeft.prefix()),
+      new ModuleIOReplay(frontRight.prefix()),
+      new ModuleIOReplay(backLeft.prefix()),
+      new ModuleIOReplay(backRight.prefix())
+    };
+  }
+
   public static VisionIO[] createRealCameras() {
     return new VisionIO[] {
       // new VisionIOReal(Cam1Constants),
@@ -336,20 +389,39 @@ public class Drive extends SubsystemBase {
     // return new VisionIO[]{};
   }
 
+  /**
+   * Constructs an array of vision IOs for log replay, matching the cameras on the real robot.
+   *
+   * @return The array of vision IOs.
+   */
+  public static VisionIO[] createReplayCameras() {
+    return new VisionIO[] {new VisionIOReplay(Cam3Constants)};
+  }
+
   // Regularly called method to update subsystem state
 
   public void periodic() {
-    // locks odom, updates all inputs
+    Tracer.startTrace(PERIODIC_TRACE);
+    // updates all inputs
+    Tracer.startTrace(INPUTS_TRACE);
     updateInputs();
+    Tracer.endTrace();
 
     // calls disabled actions, to run if bot is disabled
     disabledActions();
 
     // apply odom update
+    Tracer.startTrace(ODOMETRY_TRACE);
     updateOdom();
+    Tracer.endTrace();
 
     // Apply vision update
+    Tracer.startTrace(VISION_TRACE);
     updateVision();
+    Tracer.endTrace();
+
+    updateState();
+    Tracer.endTrace();
   }
 
   private void disabledActions() {
@@ -358,14 +430,19 @@ public class Drive extends SubsystemBase {
       for (var module : modules) {
         module.stop();
       }
-      Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
-      Logger.recordOutput("SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
-      updateVision();
+      Logger.recordOutput("SwerveStates/Setpoints", NO_STATES);
+      Logger.recordOutput("SwerveStates/SetpointsOptimized", NO_STATES);
+      wasDisabled = true;
+    } else if (wasDisabled) {
+      // Start ramping from wherever the modules were left, as of the last state snapshot
+      setpointGenerator.reset(measuredModuleStates);
+      wasDisabled = false;
     }
   }
 
   private void updateInputs() {
-    odometryLock.lock(); // Prevents odometry updates while reading data
+    // Fix the set of odometry frames read this loop, the odometry thread never waits on us
+    PhoenixOdometryThread.snapshotAllFrames();
     gyroIO.updateInputs(gyroInputs);
 
     for (var module : modules) {
@@ -377,9 +454,8 @@ public class Drive extends SubsystemBase {
       camera.processInputs();
     }
 
-    odometryLock.unlock();
-
     Logger.processInputs("Drive/Gyro", gyroInputs);
+    PhoenixOdometryThread.logAll();
 
     for (var module : modules) {
       module.periodic();
@@ -387,69 +463,127 @@ public class Drive extends SubsystemBase {
   }
 
   private void updateOdom() {
+    // Bytes allocated by our own code vs. inside the WPILib estimator, should stay at zero
+    long allocatedBefore = AllocationCounter.getThreadAllocatedBytes();
+    long estimatorAllocated = 0;
+
+    for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
+      Module module = modules[moduleIndex];
+      module.updateOdometryPositions();
+      odometryFusion.setModuleSamples(
+          moduleIndex,
+          module.getOdometryTimestamps(),
+          module.getOdometryPositions(),
+          module.getOdometrySampleCount());
+    }
+    odometryFusion.setGyroSamples(
+        gyroInputs.odometryYawTimestamps,
+        gyroInputs.odometryYawPositions,
+        gyroInputs.connected ? gyroInputs.odometryYawTimestamps.length : 0);
+
     // Update odometry // This updates based on sensor data and kinematics
-    double[] sampleTimestamps =
-        modules[0].getOdometryTimestamps(); // All signals are sampled together
-    int sampleCount = sampleTimestamps.length;
-    for (int i = 0; i < sampleCount; i++) {
-      // Read wheel positions and deltas from each module
-      SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
-      SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
+    while (odometryFusion.nextFrame()) {
+      SwerveModulePosition[] modulePositions = odometryFusion.getFramePositions();
+      // Read wheel deltas from each module
       for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
-        modulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
-        moduleDeltas[moduleIndex] =
-            new SwerveModulePosition(
-                modulePositions[moduleIndex].distanceMeters
-                    - lastModulePositions[moduleIndex].distanceMeters,
-                modulePositions[moduleIndex].angle);
-        lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+        SwerveModulePosition position = modulePositions[moduleIndex];
+        SwerveModulePosition lastPosition = lastModulePositions[moduleIndex];
+        SwerveModulePosition delta = odometryModuleDeltas[moduleIndex];
+        delta.distanceMeters = position.distanceMeters - lastPosition.distanceMeters;
+        delta.angle = position.angle;
+        lastPosition.distanceMeters = position.distanceMeters;
+        lastPosition.angle = position.angle;
       }
 
       // Update gyro angle
-      if (gyroInputs.connected) {
+      Rotation2d frameYaw = odometryFusion.getFrameYaw();
+      if (frameYaw != null) {
         // Use the real gyro angle
-        rawGyroRotation = gyroInputs.odometryYawPositions[i];
+        rawGyroRotation = frameYaw;
       } else {
         // Use the angle delta from the kinematics and module deltas
-        Twist2d twist = kinematics.toTwist2d(moduleDeltas);
+        Twist2d twist = kinematics.toTwist2d(odometryModuleDeltas);
         rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
       }
 
-      poseEstimator.updateWithTime(sampleTimestamps[i], rawGyroRotation, modulePositions);
+      // The estimator copies the positions it keeps, so the frame arrays can be reused
+      long estimatorBefore = AllocationCounter.getThreadAllocatedBytes();
+      poseEstimator.updateWithTime(
+          odometryFusion.getFrameTimestamp(), rawGyroRotation, modulePositions);
+      estimatorAllocated += AllocationCounter.getThreadAllocatedBytes() - estimatorBefore;
+
+      visionFusion.addOdometrySample(
+          odometryFusion.getFrameTimestamp(), poseEstimator.getEstimatedPosition());
+    }
+    odometryFusion.finishCycle();
+
+    if (AllocationCounter.isSupported()) {
+      Logger.recordOutput(
+          "Odometry/PipelineAllocatedBytes",
+          AllocationCounter.getThreadAllocatedBytes() - allocatedBefore - estimatorAllocated);
+      Logger.recordOutput("Odometry/EstimatorAllocatedBytes", estimatorAllocated);
     }
+    Logger.recordOutput("Odometry/Fusion/DroppedSamples", odometryFusion.getDroppedSamples());
+    Logger.recordOutput("Odometry/Fusion/LateSamples", odometryFusion.getLateSamples());
+    Logger.recordOutput(
+        "Odometry/Fusion/InterpolatedSamples", odometryFusion.getInterpolatedSamples());
   }
 
   private void updateVision() {
-    for (var camera : cameras) {
+    // Apply the solves started last loop, always in camera order so replay matches
+    visionEngine.collect();
+    for (int i = 0; i < cameras.length; i++) {
+      var camera = cameras[i];
+      var estPose = visionEngine.getCollected(i);
+      if (estPose.isEmpty()) {
+        continue;
+      }
+      var visionPose = estPose.get().estimatedPose;
+      // Sets the pose on the sim field
+      camera.setSimPose(estPose, camera, true);
+      Logger.recordOutput("Vision/Vision Pose From " + camera.getName(), visionPose);
+      Logger.recordOutput("Vision/Vision Pose2d From " + camera.getName(), visionPose.toPose2d());
+      Logger.recordOutput(
+          "Vision/" + camera.getName() + " pose on robot",
+          visionPose.plus(camera.inputs.constants.robotToCamera()));
+      visionFusion.addMeasurement(
+          i,
+          estPose.get().timestampSeconds,
+          visionPose.toPose2d(),
+          VisionHelper.findVisionMeasurementStdDevs(estPose.get()));
+    }
+
+    // Fuse everything received this loop, oldest first
+    visionFusion.applyMeasurements();
+    Logger.recordOutput("Vision/Fusion/Applied", visionFusion.getAppliedMeasurements());
+    Logger.recordOutput("Vision/Fusion/Stale", visionFusion.getStaleMeasurements());
+    Logger.recordOutput("Vision/Fusion/Expired", visionFusion.getExpiredMeasurements());
+    Logger.recordOutput("Vision/Solver/Late", visionEngine.getLateSolves());
+    Logger.recordOutput("Vision/Solver/Failed", visionEngine.getFailedSolves());
+    Logger.recordOutput("Vision/Solver/Multi Tag Fallbacks", VisionHelper.getMultiTagFallbacks());
+
+    // Start solving any new frames
+    for (int i = 0; i < cameras.length; i++) {
+      var camera = cameras[i];
+      double timestamp = camera.inputs.timestamp;
+      if (visionEngine.isPending(i)
+          || timestamp <= lastSubmittedVisionTimestamps[i] + 1e-5
+          || camera.inputs.targets.isEmpty()) {
+        continue;
+      }
+      lastSubmittedVisionTimestamps[i] = timestamp;
       PhotonPipelineResult result =
           new PhotonPipelineResult(camera.inputs.latency, camera.inputs.targets);
-      result.setTimestampSeconds(camera.inputs.timestamp);
-      boolean newResult = Math.abs(camera.inputs.timestamp - lastEstTimestamp) > 1e-5;
-      try {
-        var estPose = camera.update(result);
-        var visionPose = estPose.get().estimatedPose;
-        // Sets the pose on the sim field
-        camera.setSimPose(estPose, camera, newResult);
-        Logger.recordOutput("Vision/Vision Pose From " + camera.getName(), visionPose);
-        Logger.recordOutput("Vision/Vision Pose2d From " + camera.getName(), visionPose.toPose2d());
-        Logger.recordOutput(
-            "Vision/" + camera.getName() + " pose on robot",
-            visionPose.plus(camera.inputs.constants.robotToCamera()));
-        poseEstimator.addVisionMeasurement(
-            visionPose.toPose2d(),
-            camera.inputs.timestamp,
-            VisionHelper.findVisionMeasurementStdDevs(estPose.get()));
-        if (newResult) lastEstTimestamp = camera.inputs.timestamp;
-      } catch (NoSuchElementException e) {
-      }
+      result.setTimestampSeconds(timestamp);
+      visionEngine.submit(i, result, camera.inputs.constants, camera.inputs.coprocPNPTransform);
     }
   }
 
   public void runVelocity(ChassisSpeeds speeds) {
     // Calculate module setpoints
-    ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(speeds, 0.02);
-    SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(discreteSpeeds);
-    SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, MAX_LINEAR_SPEED);
+    SwerveSetpoint setpoint = setpointGenerator.generate(speeds, 0.02);
+    ChassisSpeeds discreteSpeeds = setpoint.chassisSpeeds();
+    SwerveModuleState[] setpointStates = setpoint.moduleStates();
 
     Logger.recordOutput("Swerve/Target Speeds", discreteSpeeds);
     Logger.recordOutput("Swerve/Speed Error", discreteSpeeds.minus(getVelocity()));
@@ -457,10 +591,7 @@ public class Drive extends SubsystemBase {
         "Swerve/Target Chassis Speeds Field Relative",
         ChassisSpeeds.fromRobotRelativeSpeeds(discreteSpeeds, getRotation()));
     // Send setpoints to modules
-    SwerveModuleState[] optimizedSetpointStates =
-        Streams.zip(
-                Arrays.stream(modules), Arrays.stream(setpointStates), (m, s) -> m.runSetpoint(s))
-            .toArray(SwerveModuleState[]::new);
+    SwerveModuleState[] optimizedSetpointStates = moduleCommands.runVelocity(setpointStates);
 
     // Log setpoint states
     Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
@@ -491,7 +622,7 @@ public class Drive extends SubsystemBase {
         () ->
             ChassisSpeeds.fromFieldRelativeSpeeds(
                 speeds.get(),
-                DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Blue
+                !AllianceFlipUtil.shouldFlip()
                     ? getPose().getRotation()
                     : getPose().getRotation().minus(Rotation2d.fromDegrees(180))));
   }
@@ -502,13 +633,13 @@ public class Drive extends SubsystemBase {
           var allianceSpeeds =
               ChassisSpeeds.fromFieldRelativeSpeeds(
                   speeds.get(),
-                  DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Blue
+                  !AllianceFlipUtil.shouldFlip()
                       ? getPose().getRotation()
                       : getPose().getRotation().minus(Rotation2d.fromDegrees(180)));
           // Calculate module setpoints
-          ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(allianceSpeeds, 0.02);
-          SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(discreteSpeeds);
-          SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, MAX_LINEAR_SPEED);
+          SwerveSetpoint setpoint = setpointGenerator.generate(allianceSpeeds, 0.02);
+          ChassisSpeeds discreteSpeeds = setpoint.chassisSpeeds();
+          SwerveModuleState[] setpointStates = setpoint.moduleStates();
 
           Logger.recordOutput("Swerve/Target Speeds", discreteSpeeds);
           Logger.recordOutput("Swerve/Field Speed Error", discreteSpeeds.minus(getVelocity()));
@@ -517,23 +648,12 @@ public class Drive extends SubsystemBase {
               ChassisSpeeds.fromRobotRelativeSpeeds(discreteSpeeds, getRotation()));
 
           final boolean focEnable =
-              Math.sqrt(
-                      Math.pow(this.getVelocity().vxMetersPerSecond, 2)
-                          + Math.pow(this.getVelocity().vyMetersPerSecond, 2))
+              Math.hypot(getVelocity().vxMetersPerSecond, getVelocity().vyMetersPerSecond)
                   < MAX_LINEAR_SPEED * 0.9;
 
           // Send setpoints to modules
-
           SwerveModuleState[] optimizedSetpointStates =
-              Streams.zip(
-                      Arrays.stream(modules),
-                      Arrays.stream(setpointStates),
-                      (m, s) ->
-                          m.runVoltageSetpoint(
-                              new SwerveModuleState(
-                                  s.speedMetersPerSecond * 12.0 / MAX_LINEAR_SPEED, s.angle),
-                              focEnable))
-                  .toArray(SwerveModuleState[]::new);
+              moduleCommands.runVoltage(setpointStates, 12.0 / MAX_LINEAR_SPEED, focEnable);
 
           // Log setpoint states
           Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
@@ -548,14 +668,11 @@ public class Drive extends SubsystemBase {
   public Command stopWithXCmd() {
     return this.run(
         () -> {
-          Rotation2d[] headings = new Rotation2d[4];
+          kinematics.resetHeadings(xLockHeadings);
           for (int i = 0; i < modules.length; i++) {
-            headings[i] = getModuleTranslations()[i].getAngle();
-          }
-          kinematics.resetHeadings(headings);
-          for (int i = 0; i < modules.length; i++) {
-            modules[i].runSetpoint(new SwerveModuleState(0.0, headings[i]));
+            modules[i].runSetpoint(xLockStates[i]);
           }
+          setpointGenerator.reset(xLockStates);
         });
   }
 
@@ -620,20 +737,40 @@ public class Drive extends SubsystemBase {
     return states;
   }
 
+  /** Returns this loop's snapshot of the drive state. */
+  public DriveState getState() {
+    return state;
+  }
+
+  // Publishes this loop's state snapshot once odometry and vision have been applied
+  private void updateState() {
+    for (int i = 0; i < modules.length; i++) {
+      measuredModuleStates[i].speedMetersPerSecond = modules[i].getVelocityMetersPerSec();
+      measuredModuleStates[i].angle = modules[i].getAngle();
+    }
+    ChassisSpeeds speeds = kinematics.toChassisSpeeds(measuredModuleStates);
+    Pose2d estimatedPose = visionFusion.getEstimatedPose();
+    state =
+        new DriveState(
+            state.generation() + 1,
+            Logger.getTimestamp() / 1e6,
+            estimatedPose,
+            ChassisSpeeds.fromRobotRelativeSpeeds(speeds, estimatedPose.getRotation()),
+            new ChassisSpeeds(
+                -speeds.vxMetersPerSecond,
+                -speeds.vyMetersPerSecond,
+                speeds.omegaRadiansPerSecond));
+  }
+
+  /** Returns the measured field relative chassis speeds. */
   @AutoLogOutput(key = "Odometry/Velocity")
   public ChassisSpeeds getVelocity() {
-    var speeds =
-        ChassisSpeeds.fromRobotRelativeSpeeds(
-            kinematics.toChassisSpeeds(
-                Arrays.stream(modules).map((m) -> m.getState()).toArray(SwerveModuleState[]::new)),
-            getRotation());
-    return new ChassisSpeeds(
-        speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+    return state.velocity();
   }
   /** Returns the current odometry pose. */
   @AutoLogOutput(key = "Odometry/Robot")
   public Pose2d getPose() {
-    return poseEstimator.getEstimatedPosition();
+    return state.pose();
   }
 
   public Pose3d getPose3d() {
@@ -642,22 +779,26 @@ public class Drive extends SubsystemBase {
 
   /** Returns the current odometry rotation. */
   public Rotation2d getRotation() {
-    return getPose().getRotation();
+    return state.rotation();
   }
 
   /** Resets the current odometry pose. */
   public void setPose(Pose2d pose) {
     poseEstimator.resetPosition(rawGyroRotation, getModulePositions(), pose);
+    visionFusion.resetPose(pose);
+    // Publish the new pose right away so it is seen before the next periodic
+    state =
+        new DriveState(
+            state.generation() + 1,
+            Logger.getTimestamp() / 1e6,
+            pose,
+            state.velocity(),
+            state.robotRelativeVelocity());
   }
 
   @AutoLogOutput(key = "Odometry/RobotRelativeVelocity")
   public ChassisSpeeds getRobotRelativeSpeeds() {
-    ChassisSpeeds speeds =
-        kinematics.toChassisSpeeds(
-            (SwerveModuleState[])
-                Arrays.stream(modules).map((m) -> m.getState()).toArray(SwerveModuleState[]::new));
-    return new ChassisSpeeds(
-        -speeds.vxMetersPerSecond, -speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+    return state.robotRelativeVelocity();
   }
   /**
    * Adds a vision measurement to the pose estimator.
@@ -666,7 +807,7 @@ public class Drive extends SubsystemBase {
    * @param timestamp The timestamp of the vision measurement in seconds.
    */
   public void addVisionMeasurement(Pose2d visionPose, double timestamp) {
-    poseEstimator.addVisionMeasurement(visionPose, timestamp);
+    visionFusion.addMeasurement(cameras.length, timestamp, visionPose, DEFAULT_VISION_STD_DEVS);
   }
 
   /** Returns the maximum linear speed in meters per sec. */
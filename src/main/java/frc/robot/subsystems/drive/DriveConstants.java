@@ -11,6 +11,7 @@ import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.numbers.N5;
 import edu.wpi.first.math.util.Units;
 import frc.robot.subsystems.drive.Module.ModuleConstants;
+import frc.robot.subsystems.drive.limits.ModuleLimits;
 
 public final class DriveConstants {
 
@@ -88,6 +89,10 @@ public final class DriveConstants {
   public static final double MAX_LINEAR_ACCELERATION = 8.0;
   public static final double MAX_ANGULAR_ACCELERATION = MAX_LINEAR_ACCELERATION / DRIVE_BASE_RADIUS;
   public static final double MAX_AUTOAIM_SPEED = MAX_LINEAR_SPEED / 4;
+  public static final double MAX_STEERING_VELOCITY = Units.degreesToRadians(1080.0);
+  // Limits the setpoint generator keeps every module within
+  public static final ModuleLimits moduleLimits =
+      new ModuleLimits(MAX_LINEAR_SPEED, MAX_LINEAR_ACCELERATION, MAX_STEERING_VELOCITY);
 
   /*
    * IMPORTANT: commented out because untested on real.
@@ -323,5 +328,27 @@ public final class DriveConstants {
    * !! DO NOT TUNE DURING COMP OR IN COMP BRANCH !!
    */
 
-  public static final int odomFrequency = 250;
+  public static final double odomFrequency = 250.0;
+  // The odometry thread backs off toward this rate if the bus can't keep up with odomFrequency
+  public static final double odomMinFrequency = 100.0;
+  // Real time priority for the odometry thread, 0 leaves it as a normal thread
+  public static final int odomThreadPriority = 1;
+
+  /*
+   * VISION FUSION
+   *
+   * Odometry state standard deviations (x meters, y meters, theta radians) used for the vision
+   * correction gain, and how much odometry history is kept for latency compensation. The state and
+   * default vision standard deviations are WPILib's SwerveDrivePoseEstimator defaults, so fusion
+   * trusts vision as much as the estimator it replaced.
+   */
+
+  public static final double[] ODOMETRY_STATE_STD_DEVS = new double[] {0.1, 0.1, 0.1};
+
+  public static final Matrix<N3, N1> DEFAULT_VISION_STD_DEVS =
+      MatBuilder.fill(Nat.N3(), Nat.N1(), 0.9, 0.9, 0.9);
+
+  public static final int POSE_HISTORY_CAPACITY = 512; // ~2 seconds at 250 Hz
+
+  public static final int VISION_BATCH_CAPACITY = 16;
 }
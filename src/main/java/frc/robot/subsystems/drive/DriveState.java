@@ -0,0 +1,30 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Snapshot of the drivetrain's estimated state, published once per loop by {@link Drive}.
+ *
+ * <p>Everything that reads the drive during a loop sees the same snapshot, so the pose and speeds
+ * are only worked out once. A new snapshot is also published when the pose is reset. The generation
+ * goes up with every snapshot, so values derived from one can be cached until it changes. Nothing
+ * in a snapshot should be modified.
+ *
+ * @param generation Increases by one with every published snapshot.
+ * @param timestamp Log timestamp in seconds when the snapshot was taken.
+ * @param pose Estimated field pose.
+ * @param velocity Measured field relative chassis speeds.
+ * @param robotRelativeVelocity Measured robot relative chassis speeds.
+ */
+public record DriveState(
+    long generation,
+    double timestamp,
+    Pose2d pose,
+    ChassisSpeeds velocity,
+    ChassisSpeeds robotRelativeVelocity) {
+  public Rotation2d rotation() {
+    return pose.getRotation();
+  }
+}
@@ -15,48 +15,52 @@ package frc.robot.subsystems.drive;
 
 import static frc.robot.subsystems.drive.DriveConstants.*;
 
-import com.ctre.phoenix6.BaseStatusSignal;
-import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
-import java.util.Queue;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.StatusSignalRegistry;
 
 /** IO implementation for Pigeon2 */
 public class GyroIOPigeon2 implements GyroIO {
   private final Pigeon2 pigeon = new Pigeon2(gyro, canbus);
   private final StatusSignal<Double> yaw = pigeon.getYaw();
-  private final Queue<Double> yawPositionQueue;
-  private final Queue<Double> yawTimestampQueue;
+  private final PhoenixOdometryThread odometryThread = PhoenixOdometryThread.getInstance(canbus);
+  private final OdometrySampleBuffer yawPositionQueue;
+  private final OdometrySampleBuffer yawTimestampQueue;
+  private final double[] yawPositionScratch;
   private final StatusSignal<Double> yawVelocity = pigeon.getAngularVelocityZWorld();
 
   public GyroIOPigeon2(boolean phoenixDrive) {
     pigeon.getConfigurator().apply(new Pigeon2Configuration());
     pigeon.getConfigurator().setYaw(0.0);
-    yaw.setUpdateFrequency(Module.ODOMETRY_FREQUENCY);
-    yawVelocity.setUpdateFrequency(100.0);
-    pigeon.optimizeBusUtilization();
+    CANBusPlanner.requestCritical(canbus, odomFrequency, yaw);
+    CANBusPlanner.request(canbus, 100.0, yawVelocity);
+    StatusSignalRegistry.register(canbus, yaw, yawVelocity);
+    CANBusPlanner.optimizeBusUtilization(pigeon);
 
-    yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-    yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(pigeon, pigeon.getYaw());
+    yawTimestampQueue = odometryThread.makeTimestampQueue();
+    yawPositionQueue = odometryThread.registerSignal(pigeon, pigeon.getYaw());
+    yawPositionScratch = new double[yawPositionQueue.getCapacity()];
   }
 
   @Override
   public void updateInputs(GyroIOInputs inputs) {
-    inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
+    // Refreshed by the registry, each signal keeps the status of its own last refresh
+    inputs.connected = yaw.getStatus().isOK() && yawVelocity.getStatus().isOK();
     inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
     inputs.yawVelocityRadPerSec = Units.degreesToRadians(yawVelocity.getValueAsDouble());
 
-    inputs.odometryYawTimestamps =
-        yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-    inputs.odometryYawPositions =
-        yawPositionQueue.stream()
-            .map((Double value) -> Rotation2d.fromDegrees(value))
-            .toArray(Rotation2d[]::new);
-    yawTimestampQueue.clear();
-    yawPositionQueue.clear();
+    int sampleCount = yawTimestampQueue.sizeUpTo(odometryThread.getSnapshotFrames());
+    inputs.odometryYawTimestamps = new double[sampleCount];
+    inputs.odometryYawPositions = new Rotation2d[sampleCount];
+    yawTimestampQueue.drain(inputs.odometryYawTimestamps, sampleCount);
+    yawPositionQueue.drain(yawPositionScratch, sampleCount);
+    for (int i = 0; i < sampleCount; i++) {
+      inputs.odometryYawPositions[i] = Rotation2d.fromDegrees(yawPositionScratch[i]);
+    }
   }
 
   @Override
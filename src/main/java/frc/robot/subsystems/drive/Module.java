@@ -14,6 +14,7 @@
 package frc.robot.subsystems.drive;
 
 import edu.wpi.first.hal.simulation.RoboRioDataJNI;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
@@ -24,25 +25,35 @@ import org.littletonrobotics.junction.Logger;
 
 public class Module {
   public static final double WHEEL_RADIUS = Units.inchesToMeters(2.0);
-  static final double ODOMETRY_FREQUENCY = 250.0;
 
   private final ModuleIO io;
   private final ModuleIOInputsAutoLogged inputs = new ModuleIOInputsAutoLogged();
   private Rotation2d angleSetpoint = null; // Setpoint for closed loop control, null for open loop
   private Double speedSetpoint = null; // Setpoint for closed loop control, null for open loop
   private Rotation2d turnRelativeOffset = null; // Relative + Offset = Absolute
+  // Reused every loop, only the first odometrySampleCount entries are valid
   private SwerveModulePosition[] odometryPositions = new SwerveModulePosition[] {};
+  private int odometrySampleCount = 0;
   private double lastSpeedSetpoint = 0.0;
   public static final double DRIVE_ROTOR_TO_METERS =
       (DriveConstants.DRIVE_GEAR_RATIO) * (1.0 / (Module.WHEEL_RADIUS * 2 * Math.PI));
 
-  private SwerveModuleState lastSetpoint = new SwerveModuleState();
+  // Reused by optimizeSetpoint when the wheel is reversed
+  private Rotation2d flipSourceAngle = null;
+  private Rotation2d flippedAngle = null;
+  // Returned by runSetpoint and runVoltageSetpoint, overwritten by the next call
+  private final SwerveModuleState optimizedState = new SwerveModuleState();
 
   public record ModuleConstants(
       String prefix, int driveID, int turnID, int cancoderID, Rotation2d cancoderOffset) {}
 
+  private final String inputsKey;
+  private final String voltageAvailableKey;
+
   public Module(ModuleIO io) {
     this.io = io;
+    inputsKey = String.format("Drive/%s Module", io.getModuleName());
+    voltageAvailableKey = inputsKey + "/Voltage Available";
   }
 
   /**
@@ -54,58 +65,110 @@ public class Module {
   }
 
   public void periodic() {
-    Logger.processInputs(String.format("Drive/%s Module", io.getModuleName()), inputs);
+    Logger.processInputs(inputsKey, inputs);
 
     Logger.recordOutput(
-        String.format("Drive/%s Module/Voltage Available", io.getModuleName()),
-        Math.abs(inputs.driveAppliedVolts - RoboRioDataJNI.getVInVoltage()));
-    // Calculate positions for odometry
+        voltageAvailableKey, Math.abs(inputs.driveAppliedVolts - RoboRioDataJNI.getVInVoltage()));
+  }
+
+  /**
+   * Calculates the positions for odometry from this cycle's samples. The positions are written in
+   * place into a reused array, which only grows if more samples arrive than ever before.
+   */
+  public void updateOdometryPositions() {
     int sampleCount = inputs.odometryTimestamps.length; // All signals are sampled together
-    odometryPositions = new SwerveModulePosition[sampleCount];
+    if (odometryPositions.length < sampleCount) {
+      var grown = new SwerveModulePosition[sampleCount];
+      System.arraycopy(odometryPositions, 0, grown, 0, odometryPositions.length);
+      for (int i = odometryPositions.length; i < sampleCount; i++) {
+        grown[i] = new SwerveModulePosition();
+      }
+      odometryPositions = grown;
+    }
     for (int i = 0; i < sampleCount; i++) {
-      double positionMeters = inputs.odometryDrivePositionsMeters[i];
-      Rotation2d angle =
-          inputs.odometryTurnPositions[i].plus(
-              turnRelativeOffset != null ? turnRelativeOffset : new Rotation2d());
-      odometryPositions[i] = new SwerveModulePosition(positionMeters, angle);
+      SwerveModulePosition position = odometryPositions[i];
+      position.distanceMeters = inputs.odometryDrivePositionsMeters[i];
+      position.angle =
+          turnRelativeOffset != null
+              ? inputs.odometryTurnPositions[i].plus(turnRelativeOffset)
+              : inputs.odometryTurnPositions[i];
     }
+    odometrySampleCount = sampleCount;
   }
 
-  /** Runs the module closed loop with the specified setpoint state. Returns the optimized state. */
+  /**
+   * Runs the module closed loop with the specified setpoint state. Returns the optimized state,
+   * which is reused by the next call.
+   */
   public SwerveModuleState runSetpoint(SwerveModuleState state) {
-    // Optimize state based on current angle
-    final var optimizedState = SwerveModuleState.optimize(state, getAngle());
-
-    io.setTurnSetpoint(optimizedState.angle);
-    io.setDriveSetpoint(
-        optimizedState.speedMetersPerSecond
-            * Math.cos(optimizedState.angle.minus(inputs.turnPosition).getRadians()),
-        (optimizedState.speedMetersPerSecond - lastSetpoint.speedMetersPerSecond) / 0.020);
-
-    lastSetpoint = optimizedState;
+    optimizeSetpoint(state, optimizedState);
+    applySetpoint(optimizedState);
     return optimizedState;
   }
 
   /**
    * Runs the module open loop with the specified setpoint state, velocity in volts. Returns the
-   * optimized state.
+   * optimized state, which is reused by the next call.
    */
   public SwerveModuleState runVoltageSetpoint(SwerveModuleState state, boolean focEnabled) {
-    // Optimize state based on current angle
-    final var optimizedState = SwerveModuleState.optimize(state, getAngle());
+    optimizeSetpoint(state, optimizedState);
+    applyVoltageSetpoint(optimizedState, 1.0, focEnabled);
+    return optimizedState;
+  }
+
+  /**
+   * Optimizes a setpoint against the current angle into {@code out}, reversing the wheel rather
+   * than turning it more than 90 degrees. Same as {@link SwerveModuleState#optimize} but writes
+   * into a reused state.
+   */
+  public void optimizeSetpoint(SwerveModuleState state, SwerveModuleState out) {
+    double delta = MathUtil.angleModulus(state.angle.getRadians() - getAngle().getRadians());
+    if (Math.abs(delta) > Math.PI / 2.0) {
+      // Setpoint angles are usually reused between loops, so the reversed angle is too
+      if (state.angle != flipSourceAngle) {
+        flipSourceAngle = state.angle;
+        flippedAngle = new Rotation2d(-state.angle.getCos(), -state.angle.getSin());
+      }
+      out.speedMetersPerSecond = -state.speedMetersPerSecond;
+      out.angle = flippedAngle;
+    } else {
+      out.speedMetersPerSecond = state.speedMetersPerSecond;
+      out.angle = state.angle;
+    }
+  }
+
+  /** Runs the module closed loop with a setpoint already run through {@link #optimizeSetpoint}. */
+  public void applySetpoint(SwerveModuleState optimizedState) {
+    io.setTurnSetpoint(optimizedState.angle);
+    io.setDriveSetpoint(
+        optimizedState.speedMetersPerSecond * getCosineScale(optimizedState.angle),
+        (optimizedState.speedMetersPerSecond - lastSpeedSetpoint) / 0.020);
+    lastSpeedSetpoint = optimizedState.speedMetersPerSecond;
+  }
 
+  /**
+   * Runs the module open loop with a setpoint already run through {@link #optimizeSetpoint}.
+   *
+   * @param voltsPerMeterPerSecond Converts the setpoint speed to drive volts.
+   */
+  public void applyVoltageSetpoint(
+      SwerveModuleState optimizedState, double voltsPerMeterPerSecond, boolean focEnabled) {
     io.setTurnSetpoint(optimizedState.angle);
     io.setDriveVoltage(
         optimizedState.speedMetersPerSecond
-            * Math.cos(optimizedState.angle.minus(inputs.turnPosition).getRadians()),
+            * voltsPerMeterPerSecond
+            * getCosineScale(optimizedState.angle),
         focEnabled);
+  }
 
-    return optimizedState;
+  // Scales drive output down while the module is still turning toward its setpoint
+  private double getCosineScale(Rotation2d angleSetpoint) {
+    return Math.cos(angleSetpoint.getRadians() - inputs.turnPosition.getRadians());
   }
 
   /**
    * Runs the module open loop with the specified setpoint state, velocity in volts. Returns the
-   * optimized state.
+   * optimized state, which is reused by the next call.
    */
   public SwerveModuleState runVoltageSetpoint(SwerveModuleState state) {
     return runVoltageSetpoint(state, true);
@@ -180,8 +243,16 @@ public class Module {
     return inputs.odometryTimestamps;
   }
 
-  /** Returns the module positions received this cycle from PhoenixOdometryThread. */
+  /**
+   * Returns the module positions received this cycle from PhoenixOdometryThread. The array is
+   * reused between cycles and may be longer than {@link #getOdometrySampleCount()}.
+   */
   public SwerveModulePosition[] getOdometryPositions() {
     return odometryPositions;
   }
+
+  /** Returns the number of valid entries in {@link #getOdometryPositions()} this cycle. */
+  public int getOdometrySampleCount() {
+    return odometrySampleCount;
+  }
 }
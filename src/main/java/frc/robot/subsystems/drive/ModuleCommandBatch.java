@@ -0,0 +1,59 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Sends setpoints to every swerve module in one pass.
+ *
+ * <p>All setpoints are first optimized into reused buffers, and only then are the control requests
+ * sent, back to back with no math in between. Phoenix 6 can't put several devices' control requests
+ * in one CAN frame, so this keeps the four modules' frames as close together on the bus as it can.
+ * It also means a slow computation can't leave some modules running this loop's setpoint and others
+ * last loop's.
+ */
+public class ModuleCommandBatch {
+  private final Module[] modules;
+  private final SwerveModuleState[] optimizedStates;
+
+  public ModuleCommandBatch(Module[] modules) {
+    this.modules = modules;
+    optimizedStates = new SwerveModuleState[modules.length];
+    for (int i = 0; i < modules.length; i++) {
+      optimizedStates[i] = new SwerveModuleState();
+    }
+  }
+
+  /**
+   * Runs every module closed loop.
+   *
+   * @return The optimized setpoints that were sent, reused between calls.
+   */
+  public SwerveModuleState[] runVelocity(SwerveModuleState[] setpoints) {
+    optimize(setpoints);
+    for (int i = 0; i < modules.length; i++) {
+      modules[i].applySetpoint(optimizedStates[i]);
+    }
+    return optimizedStates;
+  }
+
+  /**
+   * Runs every module open loop.
+   *
+   * @param voltsPerMeterPerSecond Converts setpoint speeds to drive volts.
+   * @return The optimized setpoints that were sent, reused between calls.
+   */
+  public SwerveModuleState[] runVoltage(
+      SwerveModuleState[] setpoints, double voltsPerMeterPerSecond, boolean focEnabled) {
+    optimize(setpoints);
+    for (int i = 0; i < modules.length; i++) {
+      modules[i].applyVoltageSetpoint(optimizedStates[i], voltsPerMeterPerSecond, focEnabled);
+    }
+    return optimizedStates;
+  }
+
+  private void optimize(SwerveModuleState[] setpoints) {
+    for (int i = 0; i < modules.length; i++) {
+      modules[i].optimizeSetpoint(setpoints[i], optimizedStates[i]);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/** Module IO for log replay. Inputs come from the log and outputs go nowhere. */
+public class ModuleIOReplay implements ModuleIO {
+  private final String name;
+
+  public ModuleIOReplay(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public void updateInputs(ModuleIOInputs inputs) {}
+
+  @Override
+  public void setDriveVoltage(double volts, boolean focEnabled) {}
+
+  @Override
+  public void setDriveSetpoint(double metersPerSecond, double metersPerSecondSquared) {}
+
+  @Override
+  public void setTurnVoltage(double volts) {}
+
+  @Override
+  public void setTurnSetpoint(Rotation2d rotation) {}
+
+  @Override
+  public String getModuleName() {
+    return name;
+  }
+}
@@ -22,13 +22,14 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.util.SimHarness;
 
 /**
  * Physics sim implementation of module IO.
  *
  * <p>Uses two flywheel sims for the drive and turn motors, with the absolute position initialized
- * to a random value. The flywheel sims are not physically accurate, but provide a decent
- * approximation for the behavior of the module.
+ * to a random value from the {@link SimHarness} seed. The flywheel sims are not physically
+ * accurate, but provide a decent approximation for the behavior of the module.
  */
 public class ModuleIOSim implements ModuleIO {
   private static final double LOOP_PERIOD_SECS = 0.02;
@@ -37,7 +38,8 @@ public class ModuleIOSim implements ModuleIO {
   private DCMotorSim driveSim = new DCMotorSim(DCMotor.getKrakenX60(1), 6.75, 0.025);
   private DCMotorSim turnSim = new DCMotorSim(DCMotor.getFalcon500(1), 150.0 / 7.0, 0.004);
 
-  private final Rotation2d turnAbsoluteInitPosition = new Rotation2d(Math.random() * 2.0 * Math.PI);
+  private final Rotation2d turnAbsoluteInitPosition =
+      new Rotation2d(SimHarness.getRandom().nextDouble() * 2.0 * Math.PI);
 
   private double driveAppliedVolts = 0.0;
   private double turnAppliedVolts = 0.0;
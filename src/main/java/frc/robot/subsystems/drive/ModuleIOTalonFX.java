@@ -18,8 +18,8 @@ import static frc.robot.subsystems.drive.DriveConstants.MAX_LINEAR_ACCELERATION;
 import static frc.robot.subsystems.drive.DriveConstants.MAX_LINEAR_SPEED;
 import static frc.robot.subsystems.drive.DriveConstants.TURN_GEAR_RATIO;
 import static frc.robot.subsystems.drive.DriveConstants.canbus;
+import static frc.robot.subsystems.drive.DriveConstants.odomFrequency;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
@@ -36,7 +36,9 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import frc.robot.subsystems.drive.Module.ModuleConstants;
-import java.util.Queue;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.StatusSignalRegistry;
 
 // Class for interfacing with Talon FX motor controllers and CANcoders
 // Each instance corresponds to one swerve module
@@ -49,11 +51,12 @@ public class ModuleIOTalonFX implements ModuleIO {
   private final CANcoder cancoder;
 
   // Timestampt to queue to track the time at which measurments are taken
-  private final Queue<Double> timestampQueue;
+  private final PhoenixOdometryThread odometryThread;
+  private final OdometrySampleBuffer timestampQueue;
 
   // Status signals for various measurements from drive motor
   private final StatusSignal<Double> drivePosition;
-  private final Queue<Double> drivePositionQueue;
+  private final OdometrySampleBuffer drivePositionQueue;
   private final StatusSignal<Double> driveVelocity;
   private final StatusSignal<Double> driveAppliedVolts;
   private final StatusSignal<Double> driveCurrent;
@@ -61,7 +64,8 @@ public class ModuleIOTalonFX implements ModuleIO {
   // Status signals for various measurements from turn motor
   private final StatusSignal<Double> turnAbsolutePosition;
   private final StatusSignal<Double> turnPosition;
-  private final Queue<Double> turnPositionQueue;
+  private final OdometrySampleBuffer turnPositionQueue;
+  private final double[] turnPositionScratch;
   private final StatusSignal<Double> turnVelocity;
   private final StatusSignal<Double> turnAppliedVolts;
   private final StatusSignal<Double> turnCurrent;
@@ -121,7 +125,7 @@ public class ModuleIOTalonFX implements ModuleIO {
     driveConfig.MotionMagic.MotionMagicCruiseVelocity = MAX_LINEAR_SPEED;
     driveConfig.MotionMagic.MotionMagicAcceleration = MAX_LINEAR_ACCELERATION;
     driveConfig.MotionMagic.MotionMagicJerk = MAX_LINEAR_ACCELERATION / 0.1;
-    driveTalon.getConfigurator().apply(driveConfig);
+    PhoenixConfigApplier.getInstance().apply(driveTalon, driveConfig);
 
     // Current limits
     turnConfig.CurrentLimits.StatorCurrentLimit = TURN_STATOR_CURRENT_LIMIT;
@@ -149,7 +153,7 @@ public class ModuleIOTalonFX implements ModuleIO {
     turnConfig.ClosedLoopGeneral.ContinuousWrap = true;
     turnConfig.Feedback.FeedbackRemoteSensorID = constants.cancoderID();
 
-    turnTalon.getConfigurator().apply(turnConfig);
+    PhoenixConfigApplier.getInstance().apply(turnTalon, turnConfig);
 
     var cancoderConfig = new CANcoderConfiguration();
     cancoderConfig.MagnetSensor.MagnetOffset = constants.cancoderOffset().getRotations();
@@ -157,30 +161,30 @@ public class ModuleIOTalonFX implements ModuleIO {
         IS_TURN_MOTOR_INVERTED
             ? SensorDirectionValue.CounterClockwise_Positive
             : SensorDirectionValue.Clockwise_Positive;
-    cancoder.getConfigurator().apply(cancoderConfig);
+    PhoenixConfigApplier.getInstance().apply(cancoder, cancoderConfig);
 
     // Initialize timestamp and position queues from odometry
-    timestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
+    odometryThread = PhoenixOdometryThread.getInstance(canbus);
+    timestampQueue = odometryThread.makeTimestampQueue();
 
     drivePosition = driveTalon.getPosition();
-    drivePositionQueue =
-        PhoenixOdometryThread.getInstance().registerSignal(driveTalon, driveTalon.getPosition());
+    drivePositionQueue = odometryThread.registerSignal(driveTalon, driveTalon.getPosition());
     driveVelocity = driveTalon.getVelocity();
     driveAppliedVolts = driveTalon.getMotorVoltage();
     driveCurrent = driveTalon.getStatorCurrent();
 
     turnAbsolutePosition = cancoder.getAbsolutePosition();
     turnPosition = turnTalon.getPosition();
-    turnPositionQueue =
-        PhoenixOdometryThread.getInstance().registerSignal(turnTalon, turnTalon.getPosition());
+    turnPositionQueue = odometryThread.registerSignal(turnTalon, turnTalon.getPosition());
+    turnPositionScratch = new double[turnPositionQueue.getCapacity()];
     turnVelocity = turnTalon.getVelocity();
     turnAppliedVolts = turnTalon.getMotorVoltage();
     turnCurrent = turnTalon.getStatorCurrent();
 
-    // Set update frequencies for status signals
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        Module.ODOMETRY_FREQUENCY, drivePosition, turnPosition);
-    BaseStatusSignal.setUpdateFrequencyForAll(
+    // Request update frequencies for status signals
+    CANBusPlanner.requestCritical(canbus, odomFrequency, drivePosition, turnPosition);
+    CANBusPlanner.request(
+        canbus,
         50.0,
         driveVelocity,
         driveAppliedVolts,
@@ -189,16 +193,8 @@ public class ModuleIOTalonFX implements ModuleIO {
         turnVelocity,
         turnAppliedVolts,
         turnCurrent);
-    // optimize comms between Talons and CAN bus
-    driveTalon.optimizeBusUtilization();
-    turnTalon.optimizeBusUtilization();
-    cancoder.optimizeBusUtilization();
-  }
-
-  // Method to update Inputs
-  @Override
-  public void updateInputs(ModuleIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
+    StatusSignalRegistry.register(
+        canbus,
         drivePosition,
         driveVelocity,
         driveAppliedVolts,
@@ -208,7 +204,15 @@ public class ModuleIOTalonFX implements ModuleIO {
         turnVelocity,
         turnAppliedVolts,
         turnCurrent);
+    // optimize comms between Talons and CAN bus
+    CANBusPlanner.optimizeBusUtilization(driveTalon);
+    CANBusPlanner.optimizeBusUtilization(turnTalon);
+    CANBusPlanner.optimizeBusUtilization(cancoder);
+  }
 
+  // Method to update Inputs
+  @Override
+  public void updateInputs(ModuleIOInputs inputs) {
     inputs.drivePositionMeters = drivePosition.getValueAsDouble();
     inputs.driveVelocityMetersPerSec = driveVelocity.getValueAsDouble();
     inputs.driveAppliedVolts = driveAppliedVolts.getValueAsDouble();
@@ -220,19 +224,21 @@ public class ModuleIOTalonFX implements ModuleIO {
     inputs.turnAppliedVolts = turnAppliedVolts.getValueAsDouble();
     inputs.turnCurrentAmps = new double[] {turnCurrent.getValueAsDouble()};
 
-    inputs.odometryTimestamps =
-        timestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-    inputs.odometryDrivePositionsMeters =
-        drivePositionQueue.stream()
-            .mapToDouble((Double value) -> Units.rotationsToRadians(value) / DRIVE_GEAR_RATIO)
-            .toArray();
-    inputs.odometryTurnPositions =
-        turnPositionQueue.stream()
-            .map((Double value) -> Rotation2d.fromRotations(value / TURN_GEAR_RATIO))
-            .toArray(Rotation2d[]::new);
-    timestampQueue.clear();
-    drivePositionQueue.clear();
-    turnPositionQueue.clear();
+    // Read up to the frame captured this loop so every IO sees the same samples
+    int sampleCount = timestampQueue.sizeUpTo(odometryThread.getSnapshotFrames());
+    // Arrays handed to the logger must be fresh each loop, everything else is drained in place
+    inputs.odometryTimestamps = new double[sampleCount];
+    inputs.odometryDrivePositionsMeters = new double[sampleCount];
+    inputs.odometryTurnPositions = new Rotation2d[sampleCount];
+    timestampQueue.drain(inputs.odometryTimestamps, sampleCount);
+    drivePositionQueue.drain(inputs.odometryDrivePositionsMeters, sampleCount);
+    turnPositionQueue.drain(turnPositionScratch, sampleCount);
+    for (int i = 0; i < sampleCount; i++) {
+      inputs.odometryDrivePositionsMeters[i] =
+          Units.rotationsToRadians(inputs.odometryDrivePositionsMeters[i]) / DRIVE_GEAR_RATIO;
+      inputs.odometryTurnPositions[i] =
+          Rotation2d.fromRotations(turnPositionScratch[i] / TURN_GEAR_RATIO);
+    }
   }
 
   @Override
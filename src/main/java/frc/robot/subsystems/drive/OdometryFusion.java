@@ -0,0 +1,310 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * Merges the independently timestamped module and gyro odometry streams into consistent frames for
+ * the pose estimator.
+ *
+ * <p>Each cycle the stream with the most samples is used as the reference timeline. Every other
+ * stream is sampled at the reference timestamps, interpolating between its neighbouring samples
+ * (including the last sample of the previous cycle) or holding its newest value if it has not
+ * caught up yet. Reference timestamps that are not newer than the last emitted frame are dropped.
+ *
+ * <p>Usage per cycle: set the samples for every stream, call {@link #nextFrame()} until it returns
+ * false, reading the frame getters after each call, then call {@link #finishCycle()}. No allocation
+ * happens unless a turn or gyro angle actually has to be interpolated.
+ */
+public class OdometryFusion {
+  // Samples closer together than this are treated as the same instant
+  private static final double TIMESTAMP_EPSILON = 1e-6;
+
+  private final int moduleCount;
+
+  // Samples handed in for the current cycle
+  private final double[][] moduleTimestamps;
+  private final SwerveModulePosition[][] modulePositions;
+  private final int[] moduleCounts;
+  private double[] gyroTimestamps = new double[] {};
+  private Rotation2d[] gyroYaws = new Rotation2d[] {};
+  private int gyroCount = 0;
+
+  // Newest sample of each stream from previous cycles, used to interpolate across cycles
+  private final boolean[] hasLastModule;
+  private final double[] lastModuleTimestamps;
+  private final double[] lastModuleDistances;
+  private final Rotation2d[] lastModuleAngles;
+  private boolean hasLastGyro = false;
+  private double lastGyroTimestamp = 0.0;
+  private Rotation2d lastGyroYaw = new Rotation2d();
+
+  // Per-stream read position, only moves forward within a cycle
+  private final int[] moduleCursors;
+  private int gyroCursor = 0;
+
+  // Reference timeline, -1 is the gyro
+  private int referenceStream = 0;
+  private int referenceIndex = 0;
+  private double lastFrameTimestamp = Double.NEGATIVE_INFINITY;
+
+  // Current output frame
+  private double frameTimestamp = 0.0;
+  private final SwerveModulePosition[] framePositions;
+  private Rotation2d frameYaw = null;
+
+  private long droppedSamples = 0;
+  private long lateSamples = 0;
+  private long interpolatedSamples = 0;
+
+  public OdometryFusion(int moduleCount) {
+    this.moduleCount = moduleCount;
+    moduleTimestamps = new double[moduleCount][];
+    modulePositions = new SwerveModulePosition[moduleCount][];
+    moduleCounts = new int[moduleCount];
+    hasLastModule = new boolean[moduleCount];
+    lastModuleTimestamps = new double[moduleCount];
+    lastModuleDistances = new double[moduleCount];
+    lastModuleAngles = new Rotation2d[moduleCount];
+    moduleCursors = new int[moduleCount];
+    framePositions = new SwerveModulePosition[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      moduleTimestamps[i] = new double[] {};
+      modulePositions[i] = new SwerveModulePosition[] {};
+      lastModuleAngles[i] = new Rotation2d();
+      framePositions[i] = new SwerveModulePosition();
+    }
+  }
+
+  /** Sets this cycle's samples for one module. The arrays are read, never modified or kept. */
+  public void setModuleSamples(
+      int module, double[] timestamps, SwerveModulePosition[] positions, int count) {
+    moduleTimestamps[module] = timestamps;
+    modulePositions[module] = positions;
+    moduleCounts[module] = Math.min(count, Math.min(timestamps.length, positions.length));
+  }
+
+  /**
+   * Sets this cycle's gyro samples. Pass a count of zero when the gyro is disconnected so frames
+   * report no yaw and the caller falls back to kinematics.
+   */
+  public void setGyroSamples(double[] timestamps, Rotation2d[] yaws, int count) {
+    gyroTimestamps = timestamps;
+    gyroYaws = yaws;
+    gyroCount = Math.min(count, Math.min(timestamps.length, yaws.length));
+  }
+
+  /**
+   * Advances to the next frame on the reference timeline.
+   *
+   * @return False once every reference sample of this cycle has been consumed.
+   */
+  public boolean nextFrame() {
+    if (referenceIndex == 0) {
+      chooseReference();
+    }
+    while (true) {
+      double[] timestamps;
+      int count;
+      if (referenceStream < 0) {
+        timestamps = gyroTimestamps;
+        count = gyroCount;
+      } else {
+        timestamps = moduleTimestamps[referenceStream];
+        count = moduleCounts[referenceStream];
+      }
+      if (referenceIndex >= count) {
+        return false;
+      }
+      double timestamp = timestamps[referenceIndex++];
+      if (timestamp <= lastFrameTimestamp + TIMESTAMP_EPSILON) {
+        droppedSamples++; // Out of order or duplicate
+        continue;
+      }
+      buildFrame(timestamp);
+      return true;
+    }
+  }
+
+  /** Stores the newest sample of every stream and resets for the next cycle. */
+  public void finishCycle() {
+    for (int i = 0; i < moduleCount; i++) {
+      int count = moduleCounts[i];
+      if (count > 0) {
+        hasLastModule[i] = true;
+        lastModuleTimestamps[i] = moduleTimestamps[i][count - 1];
+        lastModuleDistances[i] = modulePositions[i][count - 1].distanceMeters;
+        lastModuleAngles[i] = modulePositions[i][count - 1].angle;
+      }
+      moduleCounts[i] = 0;
+      moduleCursors[i] = 0;
+    }
+    if (gyroCount > 0) {
+      hasLastGyro = true;
+      lastGyroTimestamp = gyroTimestamps[gyroCount - 1];
+      lastGyroYaw = gyroYaws[gyroCount - 1];
+    }
+    gyroCount = 0;
+    gyroCursor = 0;
+    referenceIndex = 0;
+  }
+
+  public double getFrameTimestamp() {
+    return frameTimestamp;
+  }
+
+  /** Returns the module positions of the current frame. Reused between frames. */
+  public SwerveModulePosition[] getFramePositions() {
+    return framePositions;
+  }
+
+  /** Returns the gyro yaw of the current frame, or null if there is no gyro data to use. */
+  public Rotation2d getFrameYaw() {
+    return frameYaw;
+  }
+
+  /** Returns the total number of reference samples dropped for being out of order. */
+  public long getDroppedSamples() {
+    return droppedSamples;
+  }
+
+  /** Returns the total number of stream samples that were held because the stream lagged. */
+  public long getLateSamples() {
+    return lateSamples;
+  }
+
+  /** Returns the total number of stream samples that had to be interpolated. */
+  public long getInterpolatedSamples() {
+    return interpolatedSamples;
+  }
+
+  private void chooseReference() {
+    referenceStream = 0;
+    int bestCount = moduleCounts[0];
+    for (int i = 1; i < moduleCount; i++) {
+      if (moduleCounts[i] > bestCount) {
+        referenceStream = i;
+        bestCount = moduleCounts[i];
+      }
+    }
+    if (gyroCount > bestCount) {
+      referenceStream = -1;
+    }
+  }
+
+  private void buildFrame(double timestamp) {
+    frameTimestamp = timestamp;
+    lastFrameTimestamp = timestamp;
+
+    for (int i = 0; i < moduleCount; i++) {
+      sampleModule(i, timestamp, framePositions[i]);
+    }
+
+    if (gyroCount > 0) {
+      frameYaw = sampleGyro(timestamp);
+    } else {
+      frameYaw = null;
+    }
+  }
+
+  private void sampleModule(int module, double timestamp, SwerveModulePosition out) {
+    double[] timestamps = moduleTimestamps[module];
+    SwerveModulePosition[] positions = modulePositions[module];
+    int count = moduleCounts[module];
+    int cursor = advance(timestamps, count, moduleCursors[module], timestamp);
+    moduleCursors[module] = cursor;
+
+    if (cursor < count && Math.abs(timestamps[cursor] - timestamp) <= TIMESTAMP_EPSILON) {
+      out.distanceMeters = positions[cursor].distanceMeters;
+      out.angle = positions[cursor].angle;
+      return;
+    }
+
+    // Find the samples on either side of the timestamp
+    boolean hasBefore;
+    double beforeTime = 0.0;
+    double beforeDistance = 0.0;
+    Rotation2d beforeAngle = null;
+    if (cursor > 0) {
+      hasBefore = true;
+      beforeTime = timestamps[cursor - 1];
+      beforeDistance = positions[cursor - 1].distanceMeters;
+      beforeAngle = positions[cursor - 1].angle;
+    } else {
+      hasBefore = hasLastModule[module];
+      beforeTime = lastModuleTimestamps[module];
+      beforeDistance = lastModuleDistances[module];
+      beforeAngle = lastModuleAngles[module];
+    }
+
+    if (cursor >= count) {
+      // Stream hasn't reached this timestamp yet, hold its newest value
+      lateSamples++;
+      if (hasBefore) {
+        out.distanceMeters = beforeDistance;
+        out.angle = beforeAngle;
+      }
+      return;
+    }
+
+    if (!hasBefore) {
+      // Nothing older to interpolate from, use the first sample we have
+      out.distanceMeters = positions[cursor].distanceMeters;
+      out.angle = positions[cursor].angle;
+      return;
+    }
+
+    interpolatedSamples++;
+    double t = fraction(beforeTime, timestamps[cursor], timestamp);
+    out.distanceMeters = beforeDistance + (positions[cursor].distanceMeters - beforeDistance) * t;
+    out.angle = interpolateAngle(beforeAngle, positions[cursor].angle, t);
+  }
+
+  private Rotation2d sampleGyro(double timestamp) {
+    int cursor = advance(gyroTimestamps, gyroCount, gyroCursor, timestamp);
+    gyroCursor = cursor;
+
+    if (cursor < gyroCount && Math.abs(gyroTimestamps[cursor] - timestamp) <= TIMESTAMP_EPSILON) {
+      return gyroYaws[cursor];
+    }
+
+    boolean hasBefore = cursor > 0 || hasLastGyro;
+    double beforeTime = cursor > 0 ? gyroTimestamps[cursor - 1] : lastGyroTimestamp;
+    Rotation2d beforeYaw = cursor > 0 ? gyroYaws[cursor - 1] : lastGyroYaw;
+
+    if (cursor >= gyroCount) {
+      lateSamples++;
+      return hasBefore ? beforeYaw : gyroYaws[gyroCount - 1];
+    }
+    if (!hasBefore) {
+      return gyroYaws[cursor];
+    }
+
+    interpolatedSamples++;
+    return interpolateAngle(
+        beforeYaw, gyroYaws[cursor], fraction(beforeTime, gyroTimestamps[cursor], timestamp));
+  }
+
+  // Returns the index of the first sample at or after the timestamp
+  private static int advance(double[] timestamps, int count, int cursor, double timestamp) {
+    while (cursor < count && timestamps[cursor] < timestamp - TIMESTAMP_EPSILON) {
+      cursor++;
+    }
+    return cursor;
+  }
+
+  private static double fraction(double start, double end, double timestamp) {
+    double span = end - start;
+    if (span <= TIMESTAMP_EPSILON) {
+      return 1.0;
+    }
+    return MathUtil.clamp((timestamp - start) / span, 0.0, 1.0);
+  }
+
+  // Interpolates along the shortest arc between two angles
+  private static Rotation2d interpolateAngle(Rotation2d start, Rotation2d end, double t) {
+    double delta = MathUtil.angleModulus(end.getRadians() - start.getRadians());
+    return new Rotation2d(start.getRadians() + delta * t);
+  }
+}
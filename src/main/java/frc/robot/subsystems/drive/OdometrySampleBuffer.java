@@ -0,0 +1,103 @@
+package frc.robot.subsystems.drive;
+
+/**
+ * Preallocated single-producer/single-consumer ring buffer of primitive doubles.
+ *
+ * <p>Used to hand high-frequency odometry samples from {@link PhoenixOdometryThread} to the IO
+ * layers without boxing. Exactly one thread may call {@link #offer(double)} and exactly one thread
+ * may call {@link #drain(double[], int)}; no locks are taken on either side. When the buffer is
+ * full new samples are dropped and counted so that the main loop can log how many were lost.
+ */
+public class OdometrySampleBuffer {
+  private final double[] samples;
+  private final int mask;
+
+  // Written only by the producer / consumer respectively, read by the other side
+  private volatile long writeIndex = 0;
+  private volatile long readIndex = 0;
+  private volatile long overflowCount = 0;
+
+  /**
+   * Creates a new buffer.
+   *
+   * @param minCapacity The minimum number of samples held, rounded up to a power of two.
+   */
+  public OdometrySampleBuffer(int minCapacity) {
+    if (minCapacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive, got " + minCapacity);
+    }
+    int capacity = Integer.highestOneBit(minCapacity);
+    if (capacity < minCapacity) {
+      capacity <<= 1;
+    }
+    samples = new double[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Publishes a sample. Producer thread only.
+   *
+   * @return False if the buffer was full and the sample was dropped.
+   */
+  public boolean offer(double value) {
+    long write = writeIndex;
+    if (write - readIndex >= samples.length) {
+      overflowCount++;
+      return false;
+    }
+    samples[(int) write & mask] = value;
+    writeIndex = write + 1; // Volatile write publishes the sample
+    return true;
+  }
+
+  /** Returns the number of samples currently available to the consumer. */
+  public int size() {
+    return (int) (writeIndex - readIndex);
+  }
+
+  /**
+   * Returns the number of available samples with a sequence number below {@code sequence}. Every
+   * sample is numbered by the order it was offered, so buffers filled frame by frame can be read up
+   * to a common frame.
+   */
+  public int sizeUpTo(long sequence) {
+    long read = readIndex;
+    return (int) Math.max(0, Math.min(sequence, writeIndex) - read);
+  }
+
+  /** Returns true if the next {@link #offer(double)} would be dropped. */
+  public boolean isFull() {
+    return writeIndex - readIndex >= samples.length;
+  }
+
+  /**
+   * Copies up to {@code count} of the oldest samples into {@code dst} and removes them. Consumer
+   * thread only.
+   *
+   * @return The number of samples copied.
+   */
+  public int drain(double[] dst, int count) {
+    long read = readIndex;
+    int available = (int) (writeIndex - read);
+    int n = Math.min(Math.min(count, available), dst.length);
+    for (int i = 0; i < n; i++) {
+      dst[i] = samples[(int) (read + i) & mask];
+    }
+    readIndex = read + n; // Volatile write releases the slots to the producer
+    return n;
+  }
+
+  /** Discards all available samples. Consumer thread only. */
+  public void clear() {
+    readIndex = writeIndex;
+  }
+
+  /** Returns the total number of samples dropped because the buffer was full. */
+  public long getOverflowCount() {
+    return overflowCount;
+  }
+
+  public int getCapacity() {
+    return samples.length;
+  }
+}
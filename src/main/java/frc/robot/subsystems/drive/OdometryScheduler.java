@@ -0,0 +1,159 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusCode;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces {@link PhoenixOdometryThread} and adapts its rate to what the bus can sustain.
+ *
+ * <p>On a CAN FD bus each cycle blocks until every signal has a new sample. On a non-FD bus, where
+ * that isn't supported, cycles start on fixed deadlines measured with {@link System#nanoTime()}, so
+ * a slow refresh doesn't push every later sample back the way a fixed sleep would.
+ *
+ * <p>The time between cycles is compared to the target period and the difference is counted in a
+ * jitter histogram. A cycle is late if its wait timed out or it came more than half a period past
+ * due. The rate is reviewed about once a second. It backs off when too many cycles were late or
+ * the bus is saturated, and it creeps back up toward the max after several clean windows. Only the
+ * pacing changes here, the odometry thread applies the new rate to the signals.
+ *
+ * <p>Only the odometry thread calls {@link #awaitNextCycle}; the getters are safe from any thread.
+ */
+public class OdometryScheduler {
+  public static final int JITTER_BUCKETS = 20;
+  public static final long JITTER_BUCKET_NANOS = 100_000; // Last bucket holds everything above
+  private static final double WINDOW_SECONDS = 1.0;
+  private static final double MAX_LATE_FRACTION = 0.05;
+  private static final double MAX_BUS_UTILIZATION = 0.9;
+  private static final double BACKOFF_FACTOR = 0.8;
+  private static final double RECOVERY_FACTOR = 1.1;
+  private static final int RECOVERY_WINDOWS = 5;
+
+  private final double maxFrequency;
+  private final double minFrequency;
+  private volatile double frequency;
+  private long periodNanos;
+
+  private long nextDeadlineNanos = 0;
+  private long lastCycleNanos = 0;
+  private int windowCycles = 0;
+  private int windowLateCycles = 0;
+  private int cleanWindows = 0;
+
+  private final AtomicLongArray jitterHistogram = new AtomicLongArray(JITTER_BUCKETS);
+  private volatile long lateCycles = 0;
+  private volatile long windowCount = 0;
+  private volatile double lastBusUtilization = 0.0;
+
+  public OdometryScheduler(double maxFrequency, double minFrequency) {
+    this.maxFrequency = maxFrequency;
+    this.minFrequency = minFrequency;
+    setFrequency(maxFrequency);
+  }
+
+  /**
+   * Blocks until the next set of samples is ready and refreshes the signals.
+   *
+   * @param network The bus the signals are on, used to check its utilization.
+   */
+  public void awaitNextCycle(BaseStatusSignal[] signals, String network, boolean canFD) {
+    boolean late;
+    if (canFD) {
+      late = !BaseStatusSignal.waitForAll(2.0 / frequency, signals).equals(StatusCode.OK);
+    } else {
+      // "waitForAll" does not support blocking on multiple signals with a bus that is not CAN FD,
+      // regardless of Pro licensing, so sleep until the next deadline instead
+      long now = System.nanoTime();
+      if (nextDeadlineNanos == 0 || now - nextDeadlineNanos > periodNanos) {
+        // First cycle or too far behind to catch up, start the schedule over
+        nextDeadlineNanos = now;
+      }
+      while ((now = System.nanoTime()) < nextDeadlineNanos) {
+        LockSupport.parkNanos(nextDeadlineNanos - now);
+      }
+      late = now - nextDeadlineNanos > periodNanos / 2;
+      nextDeadlineNanos += periodNanos;
+      if (signals.length > 0) {
+        late |= !BaseStatusSignal.refreshAll(signals).equals(StatusCode.OK);
+      }
+    }
+
+    long now = System.nanoTime();
+    if (lastCycleNanos != 0) {
+      long interval = now - lastCycleNanos;
+      late |= interval - periodNanos > periodNanos / 2;
+      long jitter = Math.abs(interval - periodNanos);
+      int bucket = (int) Math.min(jitter / JITTER_BUCKET_NANOS, JITTER_BUCKETS - 1);
+      jitterHistogram.incrementAndGet(bucket);
+    }
+    lastCycleNanos = now;
+    if (late) {
+      lateCycles++;
+      windowLateCycles++;
+    }
+    if (++windowCycles >= frequency * WINDOW_SECONDS) {
+      reviewRate(network);
+    }
+  }
+
+  private void reviewRate(String network) {
+    double busUtilization = CANBus.getStatus(network).BusUtilization;
+    lastBusUtilization = busUtilization;
+    boolean struggling =
+        windowLateCycles > windowCycles * MAX_LATE_FRACTION
+            || busUtilization > MAX_BUS_UTILIZATION;
+    double newFrequency = frequency;
+    if (struggling) {
+      cleanWindows = 0;
+      newFrequency = Math.max(minFrequency, frequency * BACKOFF_FACTOR);
+    } else if (windowLateCycles == 0 && ++cleanWindows >= RECOVERY_WINDOWS) {
+      cleanWindows = 0;
+      newFrequency = Math.min(maxFrequency, frequency * RECOVERY_FACTOR);
+    }
+    if (newFrequency != frequency) {
+      setFrequency(newFrequency);
+    }
+    windowCycles = 0;
+    windowLateCycles = 0;
+    windowCount++;
+  }
+
+  private void setFrequency(double newFrequency) {
+    frequency = newFrequency;
+    periodNanos = (long) (1e9 / newFrequency);
+  }
+
+  /** Returns the rate odometry is currently sampled at. */
+  public double getFrequency() {
+    return frequency;
+  }
+
+  /** Returns the total number of cycles that were late. */
+  public long getLateCycleCount() {
+    return lateCycles;
+  }
+
+  /** Returns how many times the rate has been reviewed, the histogram only changes much then. */
+  public long getWindowCount() {
+    return windowCount;
+  }
+
+  /** Returns the bus utilization read at the last review. */
+  public double getLastBusUtilization() {
+    return lastBusUtilization;
+  }
+
+  /**
+   * Returns a copy of the jitter histogram. Bucket i counts cycles whose interval was off from the
+   * target period by i to i + 1 tenths of a millisecond.
+   */
+  public long[] getJitterHistogram() {
+    long[] copy = new long[JITTER_BUCKETS];
+    for (int i = 0; i < JITTER_BUCKETS; i++) {
+      copy[i] = jitterHistogram.get(i);
+    }
+    return copy;
+  }
+}
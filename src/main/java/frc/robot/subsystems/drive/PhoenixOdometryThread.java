@@ -19,43 +19,126 @@ import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.CANBus;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.hardware.ParentDevice;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Threads;
+import frc.robot.util.CANBusPlanner;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.littletonrobotics.junction.Logger;
 
 /**
- * Provides an interface for asynchronously reading high-frequency measurements to a set of queues.
+ * Provides an interface for asynchronously reading high-frequency measurements to a set of
+ * preallocated primitive sample buffers.
  *
  * <p>This version is intended for Phoenix 6 devices on both the RIO and CANivore buses. When using
  * a CANivore, the thread uses the "waitForAll" blocking method to enable more consistent sampling.
  * This also allows Phoenix Pro users to benefit from lower latency between devices using CANivore
- * time synchronization.
+ * time synchronization. Timing, jitter tracking and rate adaptation are handled by an {@link
+ * OdometryScheduler}.
+ *
+ * <p>There is one thread per CAN bus, so devices on a CAN FD bus are sampled by blocking on their
+ * signals while devices on the RIO bus are sampled on deadlines, each at the rate its own bus can
+ * sustain. Every thread stamps its frames from its own signals' latency. The streams are combined
+ * into one timeline by {@link OdometryFusion}, which already interpolates between independently
+ * timestamped streams.
+ *
+ * <p>Every registered signal is cloned, so the thread never shares a signal object with the main
+ * loop's refresh. Samples are handed off without locks. Each loop the thread writes one frame,
+ * which is a value for every signal plus a timestamp for every timestamp buffer, and then bumps a
+ * published frame counter. Either every buffer gets the frame or none do, so the nth sample of
+ * every buffer belongs to the same frame. The main loop calls {@link #snapshotFrames()} once per
+ * cycle and the IO layers drain up to that frame with {@link #getSnapshotFrames()}, so all of them
+ * see the same samples even if the thread keeps writing meanwhile.
  */
 public class PhoenixOdometryThread extends Thread {
   private final Lock signalsLock =
       new ReentrantLock(); // Prevents conflicts when registering signals
   private BaseStatusSignal[] signals = new BaseStatusSignal[0];
-  private final List<Queue<Double>> queues = new ArrayList<>();
-  private final List<Queue<Double>> timestampQueues = new ArrayList<>();
-  private boolean isCANFD = true;
-  private static PhoenixOdometryThread instance = null;
-
-  public static PhoenixOdometryThread getInstance() {
-    if (instance == null) {
-      instance = new PhoenixOdometryThread();
+  // The signals as registered, which are the ones their IOs requested rates for
+  private BaseStatusSignal[] requestedSignals = new BaseStatusSignal[0];
+  private final List<OdometrySampleBuffer> queues = new ArrayList<>();
+  private final List<OdometrySampleBuffer> timestampQueues = new ArrayList<>();
+  // Enough headroom for several missed main loops at the odometry frequency
+  private static final int SAMPLE_BUFFER_CAPACITY = 32;
+  private final String network;
+  private final boolean isCANFD;
+  private final OdometryScheduler scheduler =
+      new OdometryScheduler(odomFrequency, odomMinFrequency);
+
+  // Written by the odometry thread only
+  private volatile long publishedFrames = 0;
+  private volatile long droppedFrames = 0;
+  private double appliedFrequency = odomFrequency;
+  // Written by the main thread only
+  private long snapshotFrames = 0;
+  private long loggedWindowCount = -1;
+  private final String[] logKeys;
+
+  private static final Map<String, PhoenixOdometryThread> instances = new LinkedHashMap<>();
+
+  /** Returns the thread that samples devices on the given CAN bus, creating it on first use. */
+  public static PhoenixOdometryThread getInstance(String network) {
+    return instances.computeIfAbsent(network, PhoenixOdometryThread::new);
+  }
+
+  /**
+   * Starts the thread for every bus that has signals. Call after {@link CANBusPlanner#applyPlan()},
+   * otherwise the first cycles time out waiting on signals that aren't at their rates yet.
+   */
+  public static void startAll() {
+    for (PhoenixOdometryThread thread : instances.values()) {
+      thread.start();
+    }
+  }
+
+  /** Calls {@link #snapshotFrames()} on every thread. */
+  public static void snapshotAllFrames() {
+    for (PhoenixOdometryThread thread : instances.values()) {
+      thread.snapshotFrames();
+    }
+  }
+
+  /** Logs every thread's sampling statistics under "Odometry/[bus]/", call from the main loop. */
+  public static void logAll() {
+    for (PhoenixOdometryThread thread : instances.values()) {
+      String[] keys = thread.logKeys;
+      OdometryScheduler scheduler = thread.scheduler;
+      Logger.recordOutput(keys[0], thread.getDroppedFrameCount());
+      Logger.recordOutput(keys[1], scheduler.getFrequency());
+      Logger.recordOutput(keys[2], scheduler.getLateCycleCount());
+      if (thread.loggedWindowCount != scheduler.getWindowCount()) {
+        // Changes about once a second, not worth copying every loop
+        thread.loggedWindowCount = scheduler.getWindowCount();
+        Logger.recordOutput(keys[3], scheduler.getJitterHistogram());
+        Logger.recordOutput(keys[4], scheduler.getLastBusUtilization());
+      }
     }
-    return instance;
   }
 
-  private PhoenixOdometryThread() {
-    setName("PhoenixOdometryThread");
+  private PhoenixOdometryThread(String network) {
+    this.network = network;
+    isCANFD = CANBus.isNetworkFD(network);
+    setName("PhoenixOdometryThread " + network);
+    String prefix = "Odometry/" + network + "/";
+    logKeys =
+        new String[] {
+          prefix + "DroppedFrames",
+          prefix + "SampleFrequency",
+          prefix + "LateCycles",
+          prefix + "JitterHistogram",
+          prefix + "BusUtilization"
+        };
     setDaemon(true);
   }
 
+  public String getNetwork() {
+    return network;
+  }
+
   @Override
   public void start() {
     if (timestampQueues.size() > 0) {
@@ -63,77 +146,122 @@ public class PhoenixOdometryThread extends Thread {
     }
   }
 
-  public Queue<Double> registerSignal(ParentDevice device, StatusSignal<Double> signal) {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
+  /**
+   * Samples a signal on this thread. Phoenix hands out one cached signal object per device signal,
+   * and the main loop refreshes those, so the thread waits on and reads its own copy instead.
+   */
+  public OdometrySampleBuffer registerSignal(ParentDevice device, StatusSignal<Double> signal) {
+    checkNotStarted();
+    if (!device.getNetwork().equals(network)) {
+      throw new IllegalArgumentException(
+          "Device is on bus " + device.getNetwork() + ", this thread samples " + network);
+    }
+    OdometrySampleBuffer queue = new OdometrySampleBuffer(SAMPLE_BUFFER_CAPACITY);
     signalsLock.lock();
-    Drive.odometryLock.lock();
     try {
-      isCANFD = CANBus.isNetworkFD(device.getNetwork());
       BaseStatusSignal[] newSignals = new BaseStatusSignal[signals.length + 1];
       System.arraycopy(signals, 0, newSignals, 0, signals.length);
-      newSignals[signals.length] = signal;
+      newSignals[signals.length] = signal.clone();
       signals = newSignals;
+      BaseStatusSignal[] newRequestedSignals = new BaseStatusSignal[requestedSignals.length + 1];
+      System.arraycopy(requestedSignals, 0, newRequestedSignals, 0, requestedSignals.length);
+      newRequestedSignals[requestedSignals.length] = signal;
+      requestedSignals = newRequestedSignals;
       queues.add(queue);
     } finally {
       signalsLock.unlock();
-      Drive.odometryLock.unlock();
     }
     return queue;
   }
 
-  public Queue<Double> makeTimestampQueue() {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
-    Drive.odometryLock.lock();
-    try {
-      timestampQueues.add(queue);
-    } finally {
-      Drive.odometryLock.unlock();
-    }
+  public OdometrySampleBuffer makeTimestampQueue() {
+    checkNotStarted();
+    OdometrySampleBuffer queue = new OdometrySampleBuffer(SAMPLE_BUFFER_CAPACITY);
+    timestampQueues.add(queue);
     return queue;
   }
 
+  // Frame numbering only lines up if every buffer exists before the first frame
+  private void checkNotStarted() {
+    if (isAlive()) {
+      throw new IllegalStateException(
+          "Odometry signals must be registered before the thread starts");
+    }
+  }
+
+  /**
+   * Captures the number of frames published so far. Call once per main loop before any IO reads
+   * its odometry buffers.
+   */
+  public void snapshotFrames() {
+    snapshotFrames = publishedFrames;
+  }
+
+  /** Returns the frame count captured by the last {@link #snapshotFrames()}. */
+  public long getSnapshotFrames() {
+    return snapshotFrames;
+  }
+
+  public OdometryScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /** Returns the total number of frames dropped because a consumer fell behind. */
+  public long getDroppedFrameCount() {
+    return droppedFrames;
+  }
+
   @Override
   public void run() {
+    if (odomThreadPriority > 0 && RobotBase.isReal()) {
+      // Keep samples evenly spaced when the main loop or GC is busy
+      Threads.setCurrentThreadPriority(true, odomThreadPriority);
+    }
     while (true) {
       // Wait for updates from all signals
       signalsLock.lock();
       try {
-        if (isCANFD) {
-          BaseStatusSignal.waitForAll(2.0 / odomFrequency, signals);
-        } else {
-          // "waitForAll" does not support blocking on multiple
-          // signals with a bus that is not CAN FD, regardless
-          // of Pro licensing. No reasoning for this behavior
-          // is provided by the documentation.
-          Thread.sleep((long) (1000.0 / 250));
-          if (signals.length > 0) BaseStatusSignal.refreshAll(signals);
-        }
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+        scheduler.awaitNextCycle(signals, network, isCANFD);
       } finally {
         signalsLock.unlock();
       }
+      if (scheduler.getFrequency() != appliedFrequency) {
+        // Through the planner, so its recorded rates and utilization stay current
+        appliedFrequency = scheduler.getFrequency();
+        CANBusPlanner.setCriticalFrequency(network, appliedFrequency, requestedSignals);
+      }
 
-      // Save new data to queues
-      Drive.odometryLock.lock();
-      try {
-        double timestamp = Logger.getRealTimestamp() / 1e6;
-        double totalLatency = 0.0;
-        for (BaseStatusSignal signal : signals) {
-          totalLatency += signal.getTimestamp().getLatency();
-        }
-        if (signals.length > 0) {
-          timestamp -= totalLatency / signals.length;
-        }
-        for (int i = 0; i < signals.length; i++) {
-          queues.get(i).offer(signals[i].getValueAsDouble());
-        }
-        for (int i = 0; i < timestampQueues.size(); i++) {
-          timestampQueues.get(i).offer(timestamp);
-        }
-      } finally {
-        Drive.odometryLock.unlock();
+      double timestamp = Logger.getRealTimestamp() / 1e6;
+      double totalLatency = 0.0;
+      for (BaseStatusSignal signal : signals) {
+        totalLatency += signal.getTimestamp().getLatency();
+      }
+      if (signals.length > 0) {
+        timestamp -= totalLatency / signals.length;
+      }
+
+      // Drop the whole frame rather than let the buffers fall out of step
+      if (anyBufferFull()) {
+        droppedFrames++;
+        continue;
+      }
+      for (int i = 0; i < signals.length; i++) {
+        queues.get(i).offer(signals[i].getValueAsDouble());
       }
+      for (int i = 0; i < timestampQueues.size(); i++) {
+        timestampQueues.get(i).offer(timestamp);
+      }
+      publishedFrames++; // Volatile write publishes the frame to the main thread
+    }
+  }
+
+  private boolean anyBufferFull() {
+    for (int i = 0; i < queues.size(); i++) {
+      if (queues.get(i).isFull()) return true;
+    }
+    for (int i = 0; i < timestampQueues.size(); i++) {
+      if (timestampQueues.get(i).isFull()) return true;
     }
+    return false;
   }
 }
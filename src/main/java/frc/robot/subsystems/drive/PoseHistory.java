@@ -0,0 +1,101 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Fixed-size history of timestamped odometry poses stored in primitive arrays.
+ *
+ * <p>Samples must be added in increasing timestamp order; once full the oldest sample is
+ * overwritten. Lookups binary search the ring and interpolate between the two neighbouring samples,
+ * so reading the pose at a past vision timestamp costs O(log n) and allocates nothing.
+ */
+public class PoseHistory {
+  private final double[] timestamps;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] thetas;
+  private final int capacity;
+  private int start = 0; // Index of the oldest sample
+  private int size = 0;
+
+  public PoseHistory(int capacity) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("Capacity must be at least two, got " + capacity);
+    }
+    this.capacity = capacity;
+    timestamps = new double[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+    thetas = new double[capacity];
+  }
+
+  /** Adds a sample. Samples not newer than the latest one are ignored. */
+  public void add(double timestamp, double x, double y, double thetaRadians) {
+    if (size > 0 && timestamp <= timestamps[physical(size - 1)]) {
+      return;
+    }
+    int index;
+    if (size < capacity) {
+      index = physical(size);
+      size++;
+    } else {
+      index = start;
+      start = (start + 1) % capacity;
+    }
+    timestamps[index] = timestamp;
+    xs[index] = x;
+    ys[index] = y;
+    thetas[index] = thetaRadians;
+  }
+
+  public void clear() {
+    start = 0;
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Interpolates the pose at a timestamp. Timestamps past the newest sample return the newest pose.
+   *
+   * @param out Receives x, y and theta in radians, must have length 3.
+   * @return False if the history is empty or the timestamp is older than the oldest sample.
+   */
+  public boolean sample(double timestamp, double[] out) {
+    if (size == 0 || timestamp < timestamps[start]) {
+      return false;
+    }
+    int newest = physical(size - 1);
+    if (timestamp >= timestamps[newest]) {
+      out[0] = xs[newest];
+      out[1] = ys[newest];
+      out[2] = thetas[newest];
+      return true;
+    }
+
+    // Find the last sample at or before the timestamp
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (timestamps[physical(mid)] <= timestamp) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    int before = physical(low);
+    int after = physical(low + 1);
+    double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+    out[0] = xs[before] + (xs[after] - xs[before]) * t;
+    out[1] = ys[before] + (ys[after] - ys[before]) * t;
+    out[2] = thetas[before] + MathUtil.angleModulus(thetas[after] - thetas[before]) * t;
+    return true;
+  }
+
+  private int physical(int logical) {
+    return (start + logical) % capacity;
+  }
+}
@@ -0,0 +1,252 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.Arrays;
+
+/**
+ * Fuses latency-compensated vision measurements with odometry.
+ *
+ * <p>Odometry poses are recorded into a {@link PoseHistory}. The fused estimate follows odometry
+ * and each vision measurement is applied at its capture time: the estimate is moved back to that
+ * time using the odometry recorded since, corrected toward the measurement with a steady-state
+ * Kalman gain, and moved forward again. This gives the same result as replaying odometry after an
+ * out-of-order measurement without actually replaying it.
+ *
+ * <p>Measurements are queued per loop and applied together in timestamp order. Each source keeps
+ * its own last-seen timestamp so a frame is only fused once, no matter how often it is resubmitted.
+ */
+public class VisionFusion {
+  // Duplicate frames from the same source are within this of each other
+  private static final double TIMESTAMP_EPSILON = 1e-5;
+
+  private final PoseHistory odometryHistory;
+  private final double[] odometryVariances = new double[3];
+
+  // Fused estimate and the odometry pose it was last advanced to
+  private double estimateX = 0.0;
+  private double estimateY = 0.0;
+  private double estimateTheta = 0.0;
+  private double odometryX = 0.0;
+  private double odometryY = 0.0;
+  private double odometryTheta = 0.0;
+  private Pose2d estimatedPose = new Pose2d();
+  private boolean estimateDirty = false;
+
+  // Last fused timestamp of each source
+  private final double[] lastSeenTimestamps;
+
+  // Measurements queued this loop
+  private final int batchCapacity;
+  private final int[] batchOrder;
+  private final double[] batchTimestamps;
+  private final double[] batchPoses;
+  private final double[] batchStdDevs;
+  private int batchSize = 0;
+
+  // Scratch space
+  private final double[] odometrySample = new double[3];
+
+  private long appliedMeasurements = 0;
+  private long staleMeasurements = 0;
+  private long expiredMeasurements = 0;
+
+  /**
+   * Creates a fusion stage.
+   *
+   * @param sourceCount Number of measurement sources, e.g. cameras.
+   * @param historyCapacity Number of odometry samples to keep for looking back in time.
+   * @param batchCapacity Maximum number of measurements queued per loop.
+   * @param odometryStdDevs Standard deviations of the odometry state in x, y and theta.
+   */
+  public VisionFusion(
+      int sourceCount, int historyCapacity, int batchCapacity, double[] odometryStdDevs) {
+    odometryHistory = new PoseHistory(historyCapacity);
+    for (int i = 0; i < 3; i++) {
+      odometryVariances[i] = odometryStdDevs[i] * odometryStdDevs[i];
+    }
+    lastSeenTimestamps = new double[sourceCount];
+    Arrays.fill(lastSeenTimestamps, Double.NEGATIVE_INFINITY);
+    this.batchCapacity = batchCapacity;
+    batchOrder = new int[batchCapacity];
+    batchTimestamps = new double[batchCapacity];
+    batchPoses = new double[batchCapacity * 3];
+    batchStdDevs = new double[batchCapacity * 3];
+  }
+
+  /**
+   * Records an odometry pose and advances the fused estimate by the motion since the previous one.
+   */
+  public void addOdometrySample(double timestamp, Pose2d odometryPose) {
+    double x = odometryPose.getX();
+    double y = odometryPose.getY();
+    double theta = odometryPose.getRotation().getRadians();
+
+    // Apply the odometry motion, expressed in the previous odometry frame, to the estimate
+    double cos = Math.cos(odometryTheta);
+    double sin = Math.sin(odometryTheta);
+    double dx = x - odometryX;
+    double dy = y - odometryY;
+    double localX = cos * dx + sin * dy;
+    double localY = -sin * dx + cos * dy;
+    double estimateCos = Math.cos(estimateTheta);
+    double estimateSin = Math.sin(estimateTheta);
+    estimateX += estimateCos * localX - estimateSin * localY;
+    estimateY += estimateSin * localX + estimateCos * localY;
+    estimateTheta += theta - odometryTheta;
+
+    odometryX = x;
+    odometryY = y;
+    odometryTheta = theta;
+    odometryHistory.add(timestamp, x, y, theta);
+    estimateDirty = true;
+  }
+
+  /** Returns true if the source has not already had a measurement fused at this timestamp. */
+  public boolean isNewMeasurement(int source, double timestamp) {
+    return timestamp > lastSeenTimestamps[source] + TIMESTAMP_EPSILON;
+  }
+
+  /**
+   * Queues a measurement to be applied by the next {@link #applyMeasurements()}.
+   *
+   * @return False if the measurement was stale for its source or the batch is full.
+   */
+  public boolean addMeasurement(
+      int source, double timestamp, Pose2d visionPose, Matrix<N3, N1> stdDevs) {
+    if (!isNewMeasurement(source, timestamp) || batchSize >= batchCapacity) {
+      staleMeasurements++;
+      return false;
+    }
+    lastSeenTimestamps[source] = timestamp;
+    int i = batchSize++;
+    batchTimestamps[i] = timestamp;
+    batchPoses[i * 3] = visionPose.getX();
+    batchPoses[i * 3 + 1] = visionPose.getY();
+    batchPoses[i * 3 + 2] = visionPose.getRotation().getRadians();
+    batchStdDevs[i * 3] = stdDevs.get(0, 0);
+    batchStdDevs[i * 3 + 1] = stdDevs.get(1, 0);
+    batchStdDevs[i * 3 + 2] = stdDevs.get(2, 0);
+    return true;
+  }
+
+  /** Applies every queued measurement, oldest first. */
+  public void applyMeasurements() {
+    // Insertion sort, the batch is only a handful of measurements
+    for (int i = 0; i < batchSize; i++) {
+      int j = i;
+      while (j > 0 && batchTimestamps[batchOrder[j - 1]] > batchTimestamps[i]) {
+        batchOrder[j] = batchOrder[j - 1];
+        j--;
+      }
+      batchOrder[j] = i;
+    }
+    for (int i = 0; i < batchSize; i++) {
+      applyMeasurement(batchOrder[i]);
+    }
+    batchSize = 0;
+  }
+
+  private void applyMeasurement(int index) {
+    double timestamp = batchTimestamps[index];
+    // Too old to look up, or from before the last reset
+    if (!odometryHistory.sample(timestamp, odometrySample)) {
+      expiredMeasurements++;
+      return;
+    }
+
+    // Odometry motion from the measurement time to now, in the frame of the sampled pose
+    double sampleCos = Math.cos(odometrySample[2]);
+    double sampleSin = Math.sin(odometrySample[2]);
+    double dx = odometryX - odometrySample[0];
+    double dy = odometryY - odometrySample[1];
+    double motionX = sampleCos * dx + sampleSin * dy;
+    double motionY = -sampleSin * dx + sampleCos * dy;
+    double motionTheta = odometryTheta - odometrySample[2];
+
+    // Estimate at the measurement time, current estimate with the motion undone
+    double atTheta = estimateTheta - motionTheta;
+    double atCos = Math.cos(atTheta);
+    double atSin = Math.sin(atTheta);
+    double atX = estimateX - (atCos * motionX - atSin * motionY);
+    double atY = estimateY - (atSin * motionX + atCos * motionY);
+
+    // Error between the measurement and the estimate, in the estimate's frame
+    double errorX = batchPoses[index * 3] - atX;
+    double errorY = batchPoses[index * 3 + 1] - atY;
+    double localErrorX = atCos * errorX + atSin * errorY;
+    double localErrorY = -atSin * errorX + atCos * errorY;
+    double errorTheta = MathUtil.angleModulus(batchPoses[index * 3 + 2] - atTheta);
+
+    // Correct toward the measurement
+    double correctionX = gain(0, batchStdDevs[index * 3]) * localErrorX;
+    double correctionY = gain(1, batchStdDevs[index * 3 + 1]) * localErrorY;
+    double correctionTheta = gain(2, batchStdDevs[index * 3 + 2]) * errorTheta;
+    double correctedX = atX + atCos * correctionX - atSin * correctionY;
+    double correctedY = atY + atSin * correctionX + atCos * correctionY;
+    double correctedTheta = atTheta + correctionTheta;
+
+    // Reapply the motion since the measurement
+    double correctedCos = Math.cos(correctedTheta);
+    double correctedSin = Math.sin(correctedTheta);
+    estimateX = correctedX + correctedCos * motionX - correctedSin * motionY;
+    estimateY = correctedY + correctedSin * motionX + correctedCos * motionY;
+    estimateTheta = correctedTheta + motionTheta;
+    estimateDirty = true;
+    appliedMeasurements++;
+  }
+
+  /** Returns the fused pose estimate. */
+  public Pose2d getEstimatedPose() {
+    if (estimateDirty) {
+      estimatedPose = new Pose2d(estimateX, estimateY, new Rotation2d(estimateTheta));
+      estimateDirty = false;
+    }
+    return estimatedPose;
+  }
+
+  /**
+   * Resets the estimate and odometry reference to a pose and forgets all history and queued
+   * measurements.
+   */
+  public void resetPose(Pose2d pose) {
+    estimateX = pose.getX();
+    estimateY = pose.getY();
+    estimateTheta = pose.getRotation().getRadians();
+    odometryX = estimateX;
+    odometryY = estimateY;
+    odometryTheta = estimateTheta;
+    odometryHistory.clear();
+    batchSize = 0;
+    estimatedPose = pose;
+    estimateDirty = false;
+  }
+
+  public long getAppliedMeasurements() {
+    return appliedMeasurements;
+  }
+
+  /** Returns the number of measurements rejected as already fused or because the batch was full. */
+  public long getStaleMeasurements() {
+    return staleMeasurements;
+  }
+
+  /** Returns the number of measurements older than the odometry history. */
+  public long getExpiredMeasurements() {
+    return expiredMeasurements;
+  }
+
+  // Steady-state Kalman gain for one axis
+  private double gain(int axis, double visionStdDev) {
+    double q = odometryVariances[axis];
+    if (q == 0.0) {
+      return 0.0;
+    }
+    double r = visionStdDev * visionStdDev;
+    return q / (q + Math.sqrt(q * r));
+  }
+}
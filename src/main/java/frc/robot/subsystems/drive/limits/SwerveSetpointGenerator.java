@@ -0,0 +1,219 @@
+package frc.robot.subsystems.drive.limits;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Turns requested chassis speeds into module setpoints the drivetrain can actually follow.
+ *
+ * <p>Each call moves the previous setpoint toward the request along a straight line in chassis
+ * speed space, {@code prev + s * (desired - prev)}, and picks the largest {@code s} in [0, 1] that
+ * keeps every module within its {@link ModuleLimits}:
+ *
+ * <ul>
+ *   <li>Module velocities are scaled down together so none exceeds the max drive velocity.
+ *   <li>No module's velocity vector changes by more than the max drive acceleration for the period.
+ *       This caps the current a sudden reversal would pull and the brownouts that follow.
+ *   <li>No moving module has to turn faster than the max steering velocity. A module may reverse
+ *       its wheel instead of turning more than 90 degrees, so it never flips all the way around.
+ * </ul>
+ *
+ * <p>Module velocities are linear in the chassis speeds, so the whole search runs on primitive
+ * per-module arrays. The returned setpoint is owned by the generator and updated in place each
+ * call. Only a module's angle is replaced, and only when it changes, because Rotation2d is
+ * immutable.
+ */
+public class SwerveSetpointGenerator {
+  private static final double EPSILON = 1e-9;
+  // Below this module speed the wheel is treated as stopped and free to turn
+  private static final double STOPPED_SPEED = 1e-3;
+  private static final int STEERING_SEARCH_ITERATIONS = 10;
+
+  private final ModuleLimits limits;
+  private final int moduleCount;
+  private final double[] moduleX;
+  private final double[] moduleY;
+
+  // Previous setpoint, headings kept as raw radians alongside the Rotation2ds
+  private double prevVx = 0.0;
+  private double prevVy = 0.0;
+  private double prevOmega = 0.0;
+  private final double[] prevHeadings;
+
+  // Scratch space
+  private final double[] prevModuleVx;
+  private final double[] prevModuleVy;
+  private final double[] deltaModuleVx;
+  private final double[] deltaModuleVy;
+
+  private final SwerveSetpoint setpoint;
+
+  public SwerveSetpointGenerator(Translation2d[] moduleTranslations, ModuleLimits limits) {
+    this.limits = limits;
+    moduleCount = moduleTranslations.length;
+    moduleX = new double[moduleCount];
+    moduleY = new double[moduleCount];
+    prevHeadings = new double[moduleCount];
+    prevModuleVx = new double[moduleCount];
+    prevModuleVy = new double[moduleCount];
+    deltaModuleVx = new double[moduleCount];
+    deltaModuleVy = new double[moduleCount];
+    SwerveModuleState[] states = new SwerveModuleState[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      moduleX[i] = moduleTranslations[i].getX();
+      moduleY[i] = moduleTranslations[i].getY();
+      states[i] = new SwerveModuleState();
+    }
+    setpoint = new SwerveSetpoint(new ChassisSpeeds(), states);
+  }
+
+  /**
+   * Restarts from a stationary robot with the modules at the given headings. Call when the drive
+   * has been commanded by something other than this generator, e.g. after being disabled.
+   */
+  public void reset(SwerveModuleState[] measuredStates) {
+    prevVx = 0.0;
+    prevVy = 0.0;
+    prevOmega = 0.0;
+    setpoint.chassisSpeeds().vxMetersPerSecond = 0.0;
+    setpoint.chassisSpeeds().vyMetersPerSecond = 0.0;
+    setpoint.chassisSpeeds().omegaRadiansPerSecond = 0.0;
+    for (int i = 0; i < moduleCount; i++) {
+      SwerveModuleState state = setpoint.moduleStates()[i];
+      state.speedMetersPerSecond = 0.0;
+      state.angle = measuredStates[i].angle;
+      prevHeadings[i] = state.angle.getRadians();
+    }
+  }
+
+  /**
+   * Generates the next setpoint.
+   *
+   * @param desiredSpeeds Robot relative chassis speeds to move toward.
+   * @param dt Loop period in seconds.
+   * @return The setpoint to command, reused between calls.
+   */
+  public SwerveSetpoint generate(ChassisSpeeds desiredSpeeds, double dt) {
+    // Discretize so translating while rotating does not drift, same as ChassisSpeeds.discretize
+    double desiredOmega = desiredSpeeds.omegaRadiansPerSecond;
+    double halfTheta = desiredOmega * dt / 2.0;
+    double cosMinusOne = Math.cos(2.0 * halfTheta) - 1.0;
+    double halfThetaByTanOfHalfTheta =
+        Math.abs(cosMinusOne) < EPSILON
+            ? 1.0 - (4.0 * halfTheta * halfTheta) / 12.0
+            : -(halfTheta * Math.sin(2.0 * halfTheta)) / cosMinusOne;
+    double desiredVx =
+        halfThetaByTanOfHalfTheta * desiredSpeeds.vxMetersPerSecond
+            + halfTheta * desiredSpeeds.vyMetersPerSecond;
+    double desiredVy =
+        -halfTheta * desiredSpeeds.vxMetersPerSecond
+            + halfThetaByTanOfHalfTheta * desiredSpeeds.vyMetersPerSecond;
+
+    // Scale the request down so no module exceeds its top speed
+    double maxModuleSpeed = 0.0;
+    for (int i = 0; i < moduleCount; i++) {
+      double moduleVx = desiredVx - desiredOmega * moduleY[i];
+      double moduleVy = desiredVy + desiredOmega * moduleX[i];
+      maxModuleSpeed = Math.max(maxModuleSpeed, Math.hypot(moduleVx, moduleVy));
+    }
+    if (maxModuleSpeed > limits.maxDriveVelocity()) {
+      double scale = limits.maxDriveVelocity() / maxModuleSpeed;
+      desiredVx *= scale;
+      desiredVy *= scale;
+      desiredOmega *= scale;
+    }
+
+    double dVx = desiredVx - prevVx;
+    double dVy = desiredVy - prevVy;
+    double dOmega = desiredOmega - prevOmega;
+    double maxVelocityStep = limits.maxDriveAcceleration() * dt;
+    double maxHeadingStep = limits.maxSteeringVelocity() * dt;
+
+    double s = 1.0;
+    for (int i = 0; i < moduleCount; i++) {
+      prevModuleVx[i] = prevVx - prevOmega * moduleY[i];
+      prevModuleVy[i] = prevVy + prevOmega * moduleX[i];
+      deltaModuleVx[i] = dVx - dOmega * moduleY[i];
+      deltaModuleVy[i] = dVy + dOmega * moduleX[i];
+
+      // Acceleration, closed form since the module velocity is linear in s
+      double deltaSpeed = Math.hypot(deltaModuleVx[i], deltaModuleVy[i]);
+      if (deltaSpeed * s > maxVelocityStep) {
+        s = maxVelocityStep / deltaSpeed;
+      }
+    }
+    for (int i = 0; i < moduleCount; i++) {
+      s = Math.min(s, findSteeringLimit(i, s, maxHeadingStep));
+    }
+
+    // Commit the setpoint
+    prevVx += s * dVx;
+    prevVy += s * dVy;
+    prevOmega += s * dOmega;
+    ChassisSpeeds chassisSpeeds = setpoint.chassisSpeeds();
+    chassisSpeeds.vxMetersPerSecond = prevVx;
+    chassisSpeeds.vyMetersPerSecond = prevVy;
+    chassisSpeeds.omegaRadiansPerSecond = prevOmega;
+    for (int i = 0; i < moduleCount; i++) {
+      double vx = prevModuleVx[i] + s * deltaModuleVx[i];
+      double vy = prevModuleVy[i] + s * deltaModuleVy[i];
+      double speed = Math.hypot(vx, vy);
+      SwerveModuleState state = setpoint.moduleStates()[i];
+      if (speed < STOPPED_SPEED) {
+        // Hold the heading instead of snapping to zero degrees
+        state.speedMetersPerSecond = 0.0;
+        continue;
+      }
+      double heading = Math.atan2(vy, vx);
+      if (Math.abs(MathUtil.angleModulus(heading - prevHeadings[i])) > Math.PI / 2.0) {
+        // Run the wheel backwards instead of turning it around
+        heading = MathUtil.angleModulus(heading + Math.PI);
+        speed = -speed;
+      }
+      state.speedMetersPerSecond = speed;
+      if (heading != prevHeadings[i]) {
+        state.angle = new Rotation2d(heading);
+        prevHeadings[i] = heading;
+      }
+    }
+    return setpoint;
+  }
+
+  /** Returns the last generated setpoint. */
+  public SwerveSetpoint getSetpoint() {
+    return setpoint;
+  }
+
+  // Largest s up to maxS that keeps a module's heading change within the step, by bisection
+  private double findSteeringLimit(int module, double maxS, double maxHeadingStep) {
+    double prevSpeed = Math.hypot(prevModuleVx[module], prevModuleVy[module]);
+    if (prevSpeed < STOPPED_SPEED || steeringChange(module, maxS) <= maxHeadingStep) {
+      return maxS;
+    }
+    double low = 0.0;
+    double high = maxS;
+    for (int i = 0; i < STEERING_SEARCH_ITERATIONS; i++) {
+      double mid = (low + high) / 2.0;
+      if (steeringChange(module, mid) <= maxHeadingStep) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // Heading change needed at s, reversing the wheel counts as no change
+  private double steeringChange(int module, double s) {
+    double vx = prevModuleVx[module] + s * deltaModuleVx[module];
+    double vy = prevModuleVy[module] + s * deltaModuleVy[module];
+    if (Math.hypot(vx, vy) < STOPPED_SPEED) {
+      return 0.0;
+    }
+    double change = Math.abs(MathUtil.angleModulus(Math.atan2(vy, vx) - prevHeadings[module]));
+    return change > Math.PI / 2.0 ? Math.PI - change : change;
+  }
+}
@@ -1,5 +1,7 @@
 package frc.robot.subsystems.indexer;
 
+import static frc.robot.Constants.robotType;
+
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -7,34 +9,59 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
+import frc.robot.Constants.RobotType;
+import frc.robot.util.LoggedTunableNumber;
+import frc.robot.util.Tracer;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 // testing live share :O
 
 public class Indexer extends SubsystemBase {
+  private static final int PERIODIC_TRACE = Tracer.intern("Indexer");
+
   private final IndexerIO io;
   IndexerIOInputsAutoLogged inputs = new IndexerIOInputsAutoLogged();
   private Timer beamBreakTimer = new Timer();
   private DigitalInput m_BeamBreak2;
 
+  private final LoggedTunableNumber kP;
+  private final LoggedTunableNumber kI;
+  private final LoggedTunableNumber kD;
+
   public Indexer(IndexerIO io) {
     this.io = io;
+    boolean real = robotType == RobotType.REALBOT;
+    kP =
+        new LoggedTunableNumber(
+            "Indexer/kP", real ? IndexerConstants.realkP : IndexerConstants.simkP);
+    kI =
+        new LoggedTunableNumber(
+            "Indexer/kI", real ? IndexerConstants.realkI : IndexerConstants.simkI);
+    kD =
+        new LoggedTunableNumber(
+            "Indexer/kD", real ? IndexerConstants.realkD : IndexerConstants.simkD);
     beamBreakTimer.start();
     m_BeamBreak2 = new DigitalInput(IndexerConstants.beakBreak2Port);
   }
 
   public void periodic() {
+    Tracer.startTrace(PERIODIC_TRACE);
     io.updateInputs(inputs);
 
     Logger.processInputs("Indexer", inputs);
     Logger.recordOutput("Indexer/Updating", true);
 
+    // Applied in the background, so tuning doesn't stall the loop
+    LoggedTunableNumber.ifChanged(
+        hashCode(), values -> io.configurePID(values[0], values[1], values[2]), kP, kI, kD);
+
     if (m_BeamBreak2.get()) {
       beamBreakTimer.restart();
     }
     Logger.recordOutput(
         "Indexer/BeamBrake triggered?", beamBreakTimer.get() >= IndexerConstants.beamBreakDebounce);
+    Tracer.endTrace();
   }
 
   @AutoLogOutput(key = "Indexer/IndexerAppliedVoltage")
@@ -11,10 +11,10 @@ public class IndexerConstants {
   public static final double simkV = 0.0;
   public static final double simkA = 0.0;
 
-  public static final double realkP = 0.1;
+  public static final double realkP = 0.75;
   public static final double realkI = 0.0;
-  public static final double realkD = 0.0;
-  public static final double realkS = 0.0;
+  public static final double realkD = 0.0465;
+  public static final double realkS = 0.336;
   public static final double realkV = 0.0;
   public static final double realA = 0.0;
   public static final boolean EnableCurrentLimit = true;
@@ -5,32 +5,39 @@ import static frc.robot.subsystems.indexer.IndexerConstants.EnableCurrentLimit;
 import static frc.robot.subsystems.indexer.IndexerConstants.PeakCurrentDuration;
 import static frc.robot.subsystems.indexer.IndexerConstants.PeakCurrentLimit;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
-import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.PositionVoltage;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TalonFXOutput;
 
 public class IndexerIOTalonFX implements IndexerIO {
   private TalonFX indexerMotor;
+  private final TalonFXOutput output;
   TalonFXConfiguration indexerConfig;
+  private final MotorOutputConfigs motorOutputConfig;
   private double desiredSpeed;
 
   private final StatusSignal<Double> appliedVoltage;
   private final StatusSignal<Double> velocityRadsPerSec;
   private final StatusSignal<Double> tempCelcius;
   private final StatusSignal<Double> currentAmps;
+  private final StatusSignal<Double> position;
 
   public IndexerIOTalonFX() {
     indexerMotor =
         new TalonFX(IndexerConstants.indexerMotorID, IndexerConstants.indexerMotorCANBus);
+    output = new TalonFXOutput(indexerMotor);
     indexerConfig = new TalonFXConfiguration();
-    indexerConfig.Slot0.kP = 0.75;
-    indexerConfig.Slot0.kI = 0.0;
-    indexerConfig.Slot0.kD = 0.0465;
-    indexerConfig.Slot0.kS = 0.336;
+    motorOutputConfig = indexerConfig.MotorOutput;
+    indexerConfig.Slot0.kP = IndexerConstants.realkP;
+    indexerConfig.Slot0.kI = IndexerConstants.realkI;
+    indexerConfig.Slot0.kD = IndexerConstants.realkD;
+    indexerConfig.Slot0.kS = IndexerConstants.realkS;
     indexerConfig.CurrentLimits.SupplyCurrentLimitEnable = EnableCurrentLimit;
     indexerConfig.CurrentLimits.SupplyCurrentLimit = ContinuousCurrentLimit;
     indexerConfig.CurrentLimits.SupplyCurrentThreshold = PeakCurrentLimit;
@@ -40,21 +47,33 @@ public class IndexerIOTalonFX implements IndexerIO {
     velocityRadsPerSec = indexerMotor.getVelocity();
     tempCelcius = indexerMotor.getDeviceTemp();
     currentAmps = indexerMotor.getSupplyCurrent();
-
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0, appliedVoltage, velocityRadsPerSec, tempCelcius, currentAmps);
+    position = indexerMotor.getPosition();
+
+    CANBusPlanner.request(
+        IndexerConstants.indexerMotorCANBus,
+        50.0,
+        appliedVoltage,
+        velocityRadsPerSec,
+        tempCelcius,
+        currentAmps,
+        position);
+    StatusSignalRegistry.register(
+        IndexerConstants.indexerMotorCANBus,
+        appliedVoltage,
+        velocityRadsPerSec,
+        tempCelcius,
+        currentAmps,
+        position);
     // optimize comms between Talons and CAN bus
 
-    indexerMotor.getConfigurator().apply(indexerConfig);
+    PhoenixConfigApplier.getInstance().apply(indexerMotor, indexerConfig);
 
-    indexerMotor.optimizeBusUtilization();
+    CANBusPlanner.optimizeBusUtilization(indexerMotor);
   }
 
   /** updates inputs from robot */
   @Override
   public void updateInputs(IndexerIOInputs inputs) {
-    BaseStatusSignal.refreshAll(appliedVoltage, velocityRadsPerSec, tempCelcius, currentAmps);
-
     inputs.speedSetpoint = desiredSpeed;
     inputs.appliedVoltage = appliedVoltage.getValueAsDouble();
     inputs.velocityRadsPerSec = velocityRadsPerSec.getValueAsDouble();
@@ -66,35 +85,36 @@ public class IndexerIOTalonFX implements IndexerIO {
   /** sets voltage to run motor if necessary */
   @Override
   public void setVoltage(double voltage) {
-    indexerMotor.setVoltage(voltage);
+    output.setVoltage(voltage);
   }
 
   /** sets brake mode to stop */
   @Override
   public void setBrake(boolean brake) {
-    indexerMotor.setNeutralMode(brake ? NeutralModeValue.Brake : NeutralModeValue.Coast);
+    // Queued behind the full config, which would otherwise overwrite the neutral mode
+    motorOutputConfig.NeutralMode = brake ? NeutralModeValue.Brake : NeutralModeValue.Coast;
+    PhoenixConfigApplier.getInstance().apply(indexerMotor, motorOutputConfig);
   }
 
   /** sets speed of motor */
   @Override
   public void setSpeed(double speed) {
     desiredSpeed = speed;
-    indexerMotor.set(speed);
+    output.setDutyCycle(speed);
   }
 
   @Override
   public void prepNote() {
-    indexerMotor.setControl(
-        new PositionVoltage((indexerMotor.getPosition().getValueAsDouble() + 1))
-            .withVelocity(0.25));
+    // Read the position refreshed this loop rather than waiting on a fresh one
+    output.setPosition(position.getValueAsDouble() + 1, 0.25);
   }
 
   @Override
   public void configurePID(double kP, double kI, double kD) {
-    var config = new Slot0Configs();
-    config.kP = kP;
-    config.kI = kI;
-    config.kD = kD;
-    indexerMotor.getConfigurator().apply(config);
+    // Update the full slot so the feedforward gains are kept
+    indexerConfig.Slot0.kP = kP;
+    indexerConfig.Slot0.kI = kI;
+    indexerConfig.Slot0.kD = kD;
+    PhoenixConfigApplier.getInstance().apply(indexerMotor, indexerConfig.Slot0);
   }
 }
@@ -9,12 +9,15 @@ import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.subsystems.indexer.IndexerConstants;
 import frc.robot.subsystems.intake.IntakeConstants;
+import frc.robot.util.Tracer;
 import java.util.function.DoubleSupplier;
 import org.littletonrobotics.junction.Logger;
 
 // testing live share :O
 
 public class Rollers extends SubsystemBase {
+  private static final int PERIODIC_TRACE = Tracer.intern("Rollers");
+
   private final RollersIO io;
   RollersIOInputsAutoLogged inputs = new RollersIOInputsAutoLogged();
   private Timer beamBreakTimer = new Timer();
@@ -28,12 +31,14 @@ public class Rollers extends SubsystemBase {
   }
 
   public void periodic() {
+    Tracer.startTrace(PERIODIC_TRACE);
     io.updateInputs(inputs);
 
     Logger.processInputs("Rollers", inputs);
     if (beamBreak1.get()) {
       beamBreakTimer.restart();
     }
+    Tracer.endTrace();
   }
 
   public void setVoltage(double voltage) {
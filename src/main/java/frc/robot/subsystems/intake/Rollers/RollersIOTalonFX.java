@@ -1,15 +1,21 @@
 package frc.robot.subsystems.intake.rollers;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import frc.robot.subsystems.intake.rollers.RollerConstants.*;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TalonFXOutput;
 
 public class RollersIOTalonFX implements RollersIO {
   private TalonFX intakeRollerMotor;
+  private final TalonFXOutput output;
   TalonFXConfiguration intakeRollerConfig;
+  private final MotorOutputConfigs motorOutputConfig;
   private double desiredSpeed;
 
   private final StatusSignal<Double> appliedVoltage;
@@ -20,8 +26,10 @@ public class RollersIOTalonFX implements RollersIO {
   public RollersIOTalonFX() {
     intakeRollerMotor =
         new TalonFX(RollerConstants.intakeRollersMotorID, RollerConstants.intakeRollersMotorCANbus);
+    output = new TalonFXOutput(intakeRollerMotor);
 
     intakeRollerConfig = new TalonFXConfiguration();
+    motorOutputConfig = intakeRollerConfig.MotorOutput;
     intakeRollerConfig.Slot0.kP = RollerConstants.kP;
     intakeRollerConfig.Slot0.kI = RollerConstants.kI;
     intakeRollerConfig.Slot0.kD = RollerConstants.kD;
@@ -37,17 +45,27 @@ public class RollersIOTalonFX implements RollersIO {
     tempCelcius = intakeRollerMotor.getDeviceTemp();
     currentAmps = intakeRollerMotor.getSupplyCurrent();
 
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0, appliedVoltage, velocityRadsPerSec, tempCelcius, currentAmps);
+    CANBusPlanner.request(
+        RollerConstants.intakeRollersMotorCANbus,
+        50.0,
+        appliedVoltage,
+        velocityRadsPerSec,
+        tempCelcius,
+        currentAmps);
+    StatusSignalRegistry.register(
+        RollerConstants.intakeRollersMotorCANbus,
+        appliedVoltage,
+        velocityRadsPerSec,
+        tempCelcius,
+        currentAmps);
     // optimize comms between Talons and CAN bus
-    intakeRollerMotor.getConfigurator().apply(intakeRollerConfig);
-    intakeRollerMotor.optimizeBusUtilization();
+    PhoenixConfigApplier.getInstance().apply(intakeRollerMotor, intakeRollerConfig);
+    CANBusPlanner.optimizeBusUtilization(intakeRollerMotor);
   }
 
   /** updates inputs from robot */
   @Override
   public void updateInputs(RollersIOInputs inputs) {
-    BaseStatusSignal.refreshAll(appliedVoltage, velocityRadsPerSec, tempCelcius, currentAmps);
 
     inputs.speedSetpoint = desiredSpeed;
     inputs.appliedVoltage = appliedVoltage.getValueAsDouble();
@@ -59,19 +77,21 @@ public class RollersIOTalonFX implements RollersIO {
   /** sets voltage to run motor if necessary */
   @Override
   public void setVoltage(double voltage) {
-    intakeRollerMotor.setVoltage(voltage);
+    output.setVoltage(voltage);
   }
 
   /** sets brake mode to stop */
   @Override
   public void setBrake(boolean brake) {
-    intakeRollerMotor.setNeutralMode(brake ? NeutralModeValue.Brake : NeutralModeValue.Coast);
+    // Queued behind the full config, which would otherwise overwrite the neutral mode
+    motorOutputConfig.NeutralMode = brake ? NeutralModeValue.Brake : NeutralModeValue.Coast;
+    PhoenixConfigApplier.getInstance().apply(intakeRollerMotor, motorOutputConfig);
   }
 
   /** sets speed of motor */
   @Override
   public void setSpeed(double speed) {
     desiredSpeed = speed;
-    intakeRollerMotor.set(speed);
+    output.setDutyCycle(speed);
   }
 }
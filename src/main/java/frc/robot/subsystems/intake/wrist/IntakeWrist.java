@@ -8,10 +8,13 @@ import edu.wpi.first.wpilibj.util.Color8Bit;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.util.Tracer;
 import java.util.function.DoubleSupplier;
 import org.littletonrobotics.junction.Logger;
 
 public class IntakeWrist extends SubsystemBase {
+  private static final int PERIODIC_TRACE = Tracer.intern("IntakeWrist");
+
   private final IntakeWristIOInputsAutoLogged inputs = new IntakeWristIOInputsAutoLogged();
   private double setpoint = 0;
 
@@ -27,6 +30,7 @@ public class IntakeWrist extends SubsystemBase {
 
   @Override
   public void periodic() {
+    Tracer.startTrace(PERIODIC_TRACE);
     io.updateInputs(inputs);
     Logger.processInputs("IntakeWrist", inputs);
 
@@ -34,6 +38,7 @@ public class IntakeWrist extends SubsystemBase {
 
     // Log Inputs
     Logger.processInputs("IntakeWrist", inputs);
+    Tracer.endTrace();
   }
 
   public void goPID() {
@@ -1,17 +1,22 @@
 package frc.robot.subsystems.intake.wrist;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.MotionMagicVoltage;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import edu.wpi.first.math.util.Units;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TalonFXOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class IntakeWristIOTalonFX implements IntakeWristIO {
   // Motor and Encoders
   private TalonFX pivotMotor;
+  private final TalonFXOutput output;
+  private final MotorOutputConfigs motorOutputConfig;
   private double setpoint = 0;
   private double motorEncoder;
   private int m_WristSlot = 0;
@@ -25,12 +30,14 @@ public class IntakeWristIOTalonFX implements IntakeWristIO {
   public IntakeWristIOTalonFX() {
     pivotMotor =
         new TalonFX(IntakeWristConstants.wristMotorID, IntakeWristConstants.wristMotorCANBus);
+    output = new TalonFXOutput(pivotMotor);
 
     var intakeWristMotorConfig = new TalonFXConfiguration();
 
     intakeWristMotorConfig.CurrentLimits.SupplyCurrentLimit = 30.0;
     intakeWristMotorConfig.CurrentLimits.SupplyCurrentLimitEnable = true;
     intakeWristMotorConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+    motorOutputConfig = intakeWristMotorConfig.MotorOutput;
     intakeWristMotorConfig.Slot0.kP = IntakeWristConstants.wristExtendKP;
     intakeWristMotorConfig.Slot0.kI = IntakeWristConstants.wristExtendKI;
     intakeWristMotorConfig.Slot0.kD = IntakeWristConstants.wristExtendKD;
@@ -44,7 +51,7 @@ public class IntakeWristIOTalonFX implements IntakeWristIO {
     motionMagicConfigs.MotionMagicCruiseVelocity = IntakeWristConstants.maxWristVelocity;
     motionMagicConfigs.MotionMagicAcceleration = IntakeWristConstants.maxWristAccel;
 
-    pivotMotor.getConfigurator().apply(intakeWristMotorConfig);
+    PhoenixConfigApplier.getInstance().apply(pivotMotor, intakeWristMotorConfig);
     pivotMotor.setPosition(0);
     setBrake(true);
 
@@ -55,17 +62,28 @@ public class IntakeWristIOTalonFX implements IntakeWristIO {
     currentAmps = pivotMotor.getSupplyCurrent();
     tempCelcius = pivotMotor.getDeviceTemp();
 
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50, angleVelocityRadsPerSec, appliedVolts, currentAmps, tempCelcius, angleRads);
-    pivotMotor.optimizeBusUtilization();
+    CANBusPlanner.request(
+        IntakeWristConstants.wristMotorCANBus,
+        50.0,
+        angleVelocityRadsPerSec,
+        appliedVolts,
+        currentAmps,
+        tempCelcius,
+        angleRads);
+    StatusSignalRegistry.register(
+        IntakeWristConstants.wristMotorCANBus,
+        angleVelocityRadsPerSec,
+        appliedVolts,
+        currentAmps,
+        tempCelcius,
+        angleRads);
+    CANBusPlanner.optimizeBusUtilization(pivotMotor);
   }
 
   /** Updates the set of loggable inputs. */
   @Override
   public void updateInputs(IntakeWristIOInputs inputs) {
 
-    BaseStatusSignal.refreshAll(
-        angleVelocityRadsPerSec, appliedVolts, currentAmps, tempCelcius, angleRads);
     inputs.setpointAngleRads = setpoint;
     inputs.angleRads = angleRads.getValueAsDouble();
     inputs.appliedVolts = appliedVolts.getValueAsDouble();
@@ -79,7 +97,7 @@ public class IntakeWristIOTalonFX implements IntakeWristIO {
   @Override
   public void setVoltage(double motorVolts) {
     Logger.recordOutput("IntakeWrist/AppliedVolts", motorVolts);
-    pivotMotor.setVoltage(motorVolts);
+    output.setVoltage(motorVolts);
   }
 
   /** Returns the current distance measurement. */
@@ -95,11 +113,7 @@ public class IntakeWristIOTalonFX implements IntakeWristIO {
             ? IntakeWristConstants.wristExtendSlot
             : IntakeWristConstants.wristRetractSlot;
     setpoint = passedInPosition;
-    MotionMagicVoltage m_request =
-        new MotionMagicVoltage(setpoint)
-            .withSlot(m_WristSlot)
-            .withFeedForward(IntakeWristConstants.kWristFeedForward);
-    pivotMotor.setControl(m_request.withPosition(setpoint));
+    output.setMotionMagic(setpoint, m_WristSlot, IntakeWristConstants.kWristFeedForward);
   }
 
   @Override
@@ -115,7 +129,9 @@ public class IntakeWristIOTalonFX implements IntakeWristIO {
   @Override
   public void setBrake(boolean brake) {
     if (brake) {
-      pivotMotor.setNeutralMode(NeutralModeValue.Brake);
+      // Queued behind the full config, which would otherwise overwrite the neutral mode
+      motorOutputConfig.NeutralMode = NeutralModeValue.Brake;
+      PhoenixConfigApplier.getInstance().apply(pivotMotor, motorOutputConfig);
     }
   }
 
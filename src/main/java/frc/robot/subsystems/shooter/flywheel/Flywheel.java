@@ -13,51 +13,116 @@
 
 package frc.robot.subsystems.shooter.flywheel;
 
+import static frc.robot.Constants.robotType;
+import static frc.robot.subsystems.shooter.flywheel.FlywheelConstants.*;
+
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.RobotType;
+import frc.robot.util.Tracer;
 import java.util.function.DoubleSupplier;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class Flywheel extends SubsystemBase {
+  private static final int PERIODIC_TRACE = Tracer.intern("Flywheel");
+  private static final String[] TOP_LOG_KEYS = estimatorLogKeys("Flywheel/Top/");
+  private static final String[] BOTTOM_LOG_KEYS = estimatorLogKeys("Flywheel/Bottom/");
+
   private final FlywheelIO io;
   private final FlywheelIOInputsAutoLogged inputs = new FlywheelIOInputsAutoLogged();
   private double topGoalVelocityRPS = 0;
   private double bottomGoalVelocityRPS = 0;
   private double motorVoltage = 0;
+  private final FlywheelStateEstimator topEstimator;
+  private final FlywheelStateEstimator bottomEstimator;
+  private double lastTimestamp = Double.NaN;
+
   /** Creates a new Flywheel. */
   public Flywheel(FlywheelIO io) {
     this.io = io;
+    if (robotType == RobotType.SIMBOT) {
+      topEstimator = new FlywheelStateEstimator(0.0, simFlywheelModelkV, 0.0);
+      bottomEstimator = new FlywheelStateEstimator(0.0, simFlywheelModelkV, 0.0);
+    } else {
+      topEstimator =
+          new FlywheelStateEstimator(
+              realTopFlywheelFeedForwardkS,
+              realTopFlywheelFeedForwardkV,
+              realFlywheelFeedForwardkA);
+      bottomEstimator =
+          new FlywheelStateEstimator(
+              realBottomFlywheelFeedForwardkS,
+              realBottomFlywheelFeedForwardkV,
+              realFlywheelFeedForwardkA);
+    }
   }
 
   @Override
   public void periodic() {
+    Tracer.startTrace(PERIODIC_TRACE);
     io.updateInputs(inputs);
     Logger.processInputs("Flywheel", inputs);
     Logger.recordOutput("Flywheel/topGoalVelocityRPM", topGoalVelocityRPS);
     Logger.recordOutput("Flywheel/bottomGoalVelocityRPM", bottomGoalVelocityRPS);
-  }
 
+    double timestamp = Logger.getTimestamp() / 1e6;
+    double dt = Double.isNaN(lastTimestamp) ? 0.02 : timestamp - lastTimestamp;
+    lastTimestamp = timestamp;
+    if (dt > 0.0) {
+      topEstimator.update(
+          getTopVelocityRPM(),
+          inputs.upperFlywheelAppliedVolts,
+          inputs.upperFlywheelCurrentAmps,
+          dt);
+      bottomEstimator.update(
+          getBottomVelocityRPM(),
+          inputs.lowerFlywheelAppliedVolts,
+          inputs.lowerFlywheelCurrentAmps,
+          dt);
+    }
+    logEstimator(TOP_LOG_KEYS, topEstimator, topGoalVelocityRPS);
+    logEstimator(BOTTOM_LOG_KEYS, bottomEstimator, bottomGoalVelocityRPS);
+    Tracer.endTrace();
+  }
+
+  private static String[] estimatorLogKeys(String prefix) {
+    return new String[] {
+      prefix + "ErrorRPS",
+      prefix + "PredictedErrorRPS",
+      prefix + "AccelerationRPSPerSec",
+      prefix + "TimeToReadySeconds",
+      prefix + "kA"
+    };
+  }
+
+  private static void logEstimator(String[] keys, FlywheelStateEstimator estimator, double goal) {
+    Logger.recordOutput(keys[0], Math.abs(estimator.getError(goal)));
+    Logger.recordOutput(keys[1], Math.abs(estimator.getPredictedError(goal)));
+    Logger.recordOutput(keys[2], estimator.getAcceleration());
+    Logger.recordOutput(keys[3], estimator.getTimeToReady(goal));
+    Logger.recordOutput(keys[4], estimator.getKA());
+  }
+
+  /**
+   * Returns whether a note fed now would leave both wheels at their goal speeds. Uses the spin up
+   * estimate, so it turns true as soon as the wheels will be within tolerance when the note gets
+   * there rather than once the measured speed is.
+   */
   @AutoLogOutput
   public boolean flywheelsSpunUp() {
-    return bottomFlywheelSpunUp(bottomGoalVelocityRPS) && topFlywheelSpunUp(topGoalVelocityRPS);
-  }
-
-  private boolean topFlywheelSpunUp(double goalVelocity) {
-    return inDeadBand(getTopVelocityRPM(), (goalVelocity));
-  }
-
-  private boolean bottomFlywheelSpunUp(double goalVelocity) {
-    return inDeadBand(getBottomVelocityRPM(), goalVelocity);
+    return topEstimator.isReady(topGoalVelocityRPS)
+        && bottomEstimator.isReady(bottomGoalVelocityRPS);
   }
 
-  private boolean inDeadBand(double currentVelocityRPS, double goalVelocityRPS) {
-    double targetRPS = goalVelocityRPS;
-    double error = targetRPS - currentVelocityRPS;
-    Logger.recordOutput("Flywheel/ErrorRPS", Math.abs(error));
-    return (!(Math.abs(error) > 0.5));
+  /** Returns how long until both wheels are ready, infinity if one isn't approaching its goal. */
+  @AutoLogOutput
+  public double getTimeToReadySeconds() {
+    return Math.max(
+        topEstimator.getTimeToReady(topGoalVelocityRPS),
+        bottomEstimator.getTimeToReady(bottomGoalVelocityRPS));
   }
   /** Run open loop at the specified voltage. */
   public void runVolts(double volts) {
@@ -66,7 +131,7 @@ public class Flywheel extends SubsystemBase {
 
   /** Run closed loop at the specified velocity. */
   public void runVelocity(double topVelocityRPS, double bottomVelocityRPS) {
-    io.setVelocity(topVelocityRPS, topVelocityRPS);
+    io.setVelocity(topVelocityRPS, bottomVelocityRPS);
     topGoalVelocityRPS = topVelocityRPS;
     bottomGoalVelocityRPS = bottomVelocityRPS;
   }
@@ -148,6 +213,19 @@ public class Flywheel extends SubsystemBase {
         this);
   }
 
+  /** Tracks a velocity setpoint that may change every loop, until interrupted. */
+  public Command runFlywheelVelocity(DoubleSupplier velocityRPS) {
+    return new FunctionalCommand(
+        () -> runVelocity(velocityRPS.getAsDouble(), velocityRPS.getAsDouble()),
+        () -> {
+          double velocity = velocityRPS.getAsDouble();
+          runVelocity(velocity, velocity);
+        },
+        (interrupted) -> io.stop(),
+        () -> false,
+        this);
+  }
+
   public Command setSpeed(double speed) {
     return new FunctionalCommand(
         () -> setSpeeds(speed),
@@ -1,5 +1,8 @@
 package frc.robot.subsystems.shooter.flywheel;
 
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+
 public class FlywheelConstants {
   public static final int flywheelTopMotorId = 20; // TODO: assign later
   public static final int flywheelBotomMotorId = 14; // TODO: assign later
@@ -29,4 +32,19 @@ public class FlywheelConstants {
   public static final double topFlywheelVelocityRPM = 6000; // TODO: calibrate this
   public static final double bottomFlywheelVelocityRPM = 6000; // TODO: calibrate this
   public static final double acceptableErrorRPM = 100;
+
+  // Spin up estimator, velocities in rotations per second
+  public static final double realFlywheelFeedForwardkA = 0.0; // Learned on the fly until measured
+  public static final double simFlywheelModelkV =
+      1.0 / Units.radiansToRotations(DCMotor.getKrakenX60Foc(1).KvRadPerSecPerVolt);
+  public static final double estimatorAlpha = 0.5;
+  public static final double estimatorBeta = 0.1;
+  public static final double modelAccelerationWeight = 0.5;
+  public static final double kALearningRate = 0.02;
+  public static final double minLearningAccelRPSPerSec = 10.0;
+  public static final double currentLimitedAmps = 38.0; // Just under the 40 A supply limit
+  public static final double feedLatencySeconds = 0.1; // From starting the indexer to contact
+  public static final double readyToleranceRPS = 0.5;
+  public static final double readyApproachBandRPS = 1.5;
+  public static final double readyMaxAccelRPSPerSec = 15.0;
 }
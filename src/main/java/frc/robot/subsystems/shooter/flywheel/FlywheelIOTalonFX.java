@@ -26,20 +26,23 @@ import static frc.robot.subsystems.shooter.flywheel.FlywheelConstants.realTopFly
 import static frc.robot.subsystems.shooter.flywheel.FlywheelConstants.realTopFlywheelFeedForwardkS;
 import static frc.robot.subsystems.shooter.flywheel.FlywheelConstants.realTopFlywheelFeedForwardkV;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.VelocityVoltage;
-import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import edu.wpi.first.math.util.Units;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TalonFXOutput;
 
 public class FlywheelIOTalonFX implements FlywheelIO {
   private final TalonFX topFlywheel = new TalonFX(flywheelTopMotorId, "rio");
   private final TalonFX bottomFlywheel = new TalonFX(flywheelBotomMotorId, "rio");
+  private final TalonFXOutput topOutput = new TalonFXOutput(topFlywheel);
+  private final TalonFXOutput bottomOutput = new TalonFXOutput(bottomFlywheel);
 
   private final StatusSignal<Double> topFlywheelPosition = topFlywheel.getPosition();
   private final StatusSignal<Double> topFlywheelVelocity = topFlywheel.getVelocity();
@@ -51,9 +54,15 @@ public class FlywheelIOTalonFX implements FlywheelIO {
   private final StatusSignal<Double> bottomFlywheelAppliedVolts = bottomFlywheel.getMotorVoltage();
   private final StatusSignal<Double> bottomFlywheelCurrent = bottomFlywheel.getSupplyCurrent();
 
+  // Kept so new feedback gains can be pushed without clearing the feedforward gains
+  private final Slot0Configs topSlot0;
+  private final Slot0Configs bottomSlot0;
+
   public FlywheelIOTalonFX() {
     var configUpper = new TalonFXConfiguration();
     var configLower = new TalonFXConfiguration();
+    topSlot0 = configUpper.Slot0;
+    bottomSlot0 = configLower.Slot0;
 
     // upper flywheel config
     configUpper.Slot0.kP = realTopFlywheelFeedBackkP;
@@ -97,26 +106,22 @@ public class FlywheelIOTalonFX implements FlywheelIO {
 
     configLower.MotorOutput.NeutralMode = NeutralModeValue.Coast;
 
-    topFlywheel.getConfigurator().apply(configUpper);
-    bottomFlywheel.getConfigurator().apply(configLower);
+    PhoenixConfigApplier.getInstance().apply(topFlywheel, configUpper);
+    PhoenixConfigApplier.getInstance().apply(bottomFlywheel, configLower);
 
-    BaseStatusSignal.setUpdateFrequencyForAll(
+    // Faster velocity updates help spin up detection, so they may use spare bus capacity
+    CANBusPlanner.request("rio", 50.0, 100.0, topFlywheelVelocity, bottomFlywheelVelocity);
+    CANBusPlanner.request(
+        "rio",
         50.0,
         topFlywheelPosition,
-        topFlywheelVelocity,
         topFlywheelAppliedVolts,
         topFlywheelCurrent,
         bottomFlywheelPosition,
-        bottomFlywheelVelocity,
         bottomFlywheelAppliedVolts,
         bottomFlywheelCurrent);
-    topFlywheel.optimizeBusUtilization();
-    bottomFlywheel.optimizeBusUtilization();
-  }
-
-  @Override
-  public void updateInputs(FlywheelIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
+    StatusSignalRegistry.register(
+        "rio",
         topFlywheelPosition,
         topFlywheelVelocity,
         topFlywheelAppliedVolts,
@@ -125,7 +130,12 @@ public class FlywheelIOTalonFX implements FlywheelIO {
         bottomFlywheelVelocity,
         bottomFlywheelAppliedVolts,
         bottomFlywheelCurrent);
+    CANBusPlanner.optimizeBusUtilization(topFlywheel);
+    CANBusPlanner.optimizeBusUtilization(bottomFlywheel);
+  }
 
+  @Override
+  public void updateInputs(FlywheelIOInputs inputs) {
     inputs.upperFlywheelPositionRad =
         Units.rotationsToRadians(topFlywheelPosition.getValueAsDouble());
     inputs.upperFlywheelVelocityRadPerSec =
@@ -143,35 +153,37 @@ public class FlywheelIOTalonFX implements FlywheelIO {
 
   @Override
   public void setVoltage(double volts) {
-    topFlywheel.setControl(new VoltageOut(-volts));
-    bottomFlywheel.setControl(new VoltageOut(volts));
+    topOutput.setVoltage(-volts);
+    bottomOutput.setVoltage(volts);
   }
 
   @Override
   public void setVelocity(double topVelocityRadPerSec, double bottomVelocityRadPerSec) {
-    bottomFlywheel.setControl(new VelocityVoltage(bottomVelocityRadPerSec));
-    topFlywheel.setControl(new VelocityVoltage(topVelocityRadPerSec));
+    bottomOutput.setVelocity(bottomVelocityRadPerSec);
+    topOutput.setVelocity(topVelocityRadPerSec);
   }
 
   @Override
   public void stop() {
-    topFlywheel.stopMotor();
-    bottomFlywheel.stopMotor();
+    topOutput.stop();
+    bottomOutput.stop();
   }
 
   @Override
   public void configurePID(double kP, double kI, double kD) {
-    var config = new Slot0Configs();
-    config.kP = kP;
-    config.kI = kI;
-    config.kD = kD;
-    topFlywheel.getConfigurator().apply(config);
-    bottomFlywheel.getConfigurator().apply(config);
+    topSlot0.kP = kP;
+    topSlot0.kI = kI;
+    topSlot0.kD = kD;
+    bottomSlot0.kP = kP;
+    bottomSlot0.kI = kI;
+    bottomSlot0.kD = kD;
+    PhoenixConfigApplier.getInstance().apply(topFlywheel, topSlot0);
+    PhoenixConfigApplier.getInstance().apply(bottomFlywheel, bottomSlot0);
   }
 
   @Override
   public void setSpeed(double speed) {
-    topFlywheel.set(speed);
-    bottomFlywheel.set(speed);
+    topOutput.setDutyCycle(speed);
+    bottomOutput.setDutyCycle(speed);
   }
 }
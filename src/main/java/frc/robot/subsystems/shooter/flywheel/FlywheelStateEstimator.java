@@ -0,0 +1,118 @@
+package frc.robot.subsystems.shooter.flywheel;
+
+import static frc.robot.subsystems.shooter.flywheel.FlywheelConstants.*;
+
+/**
+ * Tracks one flywheel's velocity and acceleration and predicts when it will be ready to shoot.
+ *
+ * <p>Velocity and acceleration come from an alpha-beta filter on the measured velocity. While the
+ * wheel is spinning up, that is blended with the acceleration the applied voltage should produce:
+ * whatever voltage is left after the kS and kV feedforward terms goes into acceleration, divided
+ * by kA. kA starts from a constant and is refined every loop the wheel is clearly accelerating and
+ * not current limited, so the model keeps working when the constant is missing or stale.
+ *
+ * <p>The wheel is ready when the filtered error is small, it has nearly settled, and the error
+ * predicted {@link FlywheelConstants#feedLatencySeconds} ahead, when a note fed now would reach the
+ * wheel, is within tolerance. None of this depends on the goal, so a new goal can be checked the
+ * same loop it is set. Velocities are in rotations per second.
+ */
+public class FlywheelStateEstimator {
+  private final double kS;
+  private final double kV;
+  private double kA;
+
+  private boolean initialized = false;
+  private double velocity = 0.0;
+  private double acceleration = 0.0;
+
+  /**
+   * @param kS Volts to overcome friction.
+   * @param kV Volts per rotation per second.
+   * @param kA Volts per rotation per second squared, or 0 to learn it from scratch.
+   */
+  public FlywheelStateEstimator(double kS, double kV, double kA) {
+    this.kS = kS;
+    this.kV = kV;
+    this.kA = kA;
+  }
+
+  /** Updates the estimate from this loop's inputs. */
+  public void update(double measuredRPS, double appliedVolts, double currentAmps, double dtSecs) {
+    if (!initialized) {
+      velocity = measuredRPS;
+      acceleration = 0.0;
+      initialized = true;
+      return;
+    }
+    double predicted = velocity + acceleration * dtSecs;
+    double residual = measuredRPS - predicted;
+    velocity = predicted + estimatorAlpha * residual;
+    double measuredAcceleration = acceleration + estimatorBeta * residual / dtSecs;
+
+    // Voltage left over after holding the current speed is what accelerates the wheel
+    double headroomVolts = appliedVolts - kS * Math.signum(velocity) - kV * velocity;
+    boolean currentLimited = Math.abs(currentAmps) >= currentLimitedAmps;
+    if (!currentLimited && Math.abs(measuredAcceleration) >= minLearningAccelRPSPerSec) {
+      double observedKA = headroomVolts / measuredAcceleration;
+      if (observedKA > 0.0) {
+        kA = kA > 0.0 ? kA + kALearningRate * (observedKA - kA) : observedKA;
+      }
+    }
+    if (kA > 0.0) {
+      double modelAcceleration = headroomVolts / kA;
+      acceleration =
+          modelAccelerationWeight * modelAcceleration
+              + (1.0 - modelAccelerationWeight) * measuredAcceleration;
+    } else {
+      acceleration = measuredAcceleration;
+    }
+  }
+
+  /** Returns the filtered velocity in rotations per second. */
+  public double getVelocity() {
+    return velocity;
+  }
+
+  /** Returns the estimated acceleration in rotations per second squared. */
+  public double getAcceleration() {
+    return acceleration;
+  }
+
+  /** Returns the current kA estimate, 0 until it has been learned. */
+  public double getKA() {
+    return kA;
+  }
+
+  /** Returns the goal minus the filtered velocity. */
+  public double getError(double goalRPS) {
+    return goalRPS - velocity;
+  }
+
+  /** Returns the error expected once a note fed now reaches the wheel. */
+  public double getPredictedError(double goalRPS) {
+    return goalRPS - (velocity + acceleration * feedLatencySeconds);
+  }
+
+  /** Returns whether a note fed now would leave at the goal speed. */
+  public boolean isReady(double goalRPS) {
+    return Math.abs(getError(goalRPS)) <= readyApproachBandRPS
+        && Math.abs(getPredictedError(goalRPS)) <= readyToleranceRPS
+        && Math.abs(acceleration) <= readyMaxAccelRPSPerSec;
+  }
+
+  /**
+   * Returns how long until the wheel is ready at its current acceleration, 0 if it already is, or
+   * infinity if it isn't moving toward the goal.
+   */
+  public double getTimeToReady(double goalRPS) {
+    if (isReady(goalRPS)) {
+      return 0.0;
+    }
+    double error = getError(goalRPS);
+    if (error * acceleration <= 0.0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double remaining = Math.abs(error) - readyToleranceRPS;
+    return Math.max(0.0, remaining / Math.abs(acceleration) - feedLatencySeconds);
+  }
+}
@@ -12,11 +12,14 @@ import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
+import frc.robot.util.Tracer;
 import java.util.function.DoubleSupplier;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class ShooterWrist extends SubsystemBase {
+  private static final int PERIODIC_TRACE = Tracer.intern("ShooterWrist");
+
   private final ShooterWristIOInputsAutoLogged inputs = new ShooterWristIOInputsAutoLogged();
 
   private double setpoint = 0;
@@ -34,6 +37,7 @@ public class ShooterWrist extends SubsystemBase {
 
   @Override
   public void periodic() {
+    Tracer.startTrace(PERIODIC_TRACE);
     io.updateInputs(inputs);
     Logger.processInputs("ShooterWrist", inputs);
 
@@ -41,6 +45,7 @@ public class ShooterWrist extends SubsystemBase {
 
     // Log Inputs
     Logger.processInputs("ShooterWrist", inputs);
+    Tracer.endTrace();
   }
 
   public void setBrake(boolean brake) {
@@ -5,20 +5,24 @@ import static frc.robot.subsystems.shooter.wrist.ShooterWristConstants.shooterWr
 import static frc.robot.subsystems.shooter.wrist.ShooterWristConstants.wristMotorCANBus;
 import static frc.robot.subsystems.shooter.wrist.ShooterWristConstants.wristMotorID;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.SoftwareLimitSwitchConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.PositionVoltage;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import frc.robot.util.CANBusPlanner;
+import frc.robot.util.PhoenixConfigApplier;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TalonFXOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class ShooterWristIOTalonFX implements ShooterWristIO {
   // Motor and Encoders
   private TalonFX pivotMotor;
+  private final TalonFXOutput output;
   private double setpoint = 0;
   private DutyCycleEncoder absEncoder;
 
@@ -27,11 +31,14 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
   private final StatusSignal<Double> tempCelcius;
   private final StatusSignal<Double> currentAmps;
   private final StatusSignal<Double> angleRads;
+  private final StatusSignal<Double> statorCurrentAmps;
   private Boolean isHomed = false;
   private final SoftwareLimitSwitchConfigs limitConfig;
+  private final MotorOutputConfigs motorOutputConfig;
 
   public ShooterWristIOTalonFX() {
     pivotMotor = new TalonFX(wristMotorID, wristMotorCANBus);
+    output = new TalonFXOutput(pivotMotor);
 
     absEncoder = new DutyCycleEncoder(2);
 
@@ -42,6 +49,7 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
     config.CurrentLimits.SupplyCurrentLimitEnable = true;
     config.CurrentLimits.StatorCurrentLimitEnable = true;
     config.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+    motorOutputConfig = config.MotorOutput;
 
     config.Slot0.kP = 1.75;
     config.Slot0.kI = shooterWristRealkI;
@@ -54,8 +62,8 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
     limitConfig.ReverseSoftLimitThreshold = 0;
     this.limitConfig = limitConfig;
 
-    pivotMotor.getConfigurator().apply(config);
-    pivotMotor.getConfigurator().apply(limitConfig);
+    PhoenixConfigApplier.getInstance().apply(pivotMotor, config);
+    PhoenixConfigApplier.getInstance().apply(pivotMotor, limitConfig);
 
     setBrake(true);
 
@@ -68,17 +76,31 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
     appliedVolts = pivotMotor.getSupplyVoltage();
     currentAmps = pivotMotor.getSupplyCurrent();
     tempCelcius = pivotMotor.getDeviceTemp();
-
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50, angleVelocityRadsPerSec, appliedVolts, currentAmps, tempCelcius, angleRads);
-    pivotMotor.optimizeBusUtilization();
+    statorCurrentAmps = pivotMotor.getStatorCurrent();
+
+    CANBusPlanner.request(
+        wristMotorCANBus,
+        50.0,
+        angleVelocityRadsPerSec,
+        appliedVolts,
+        currentAmps,
+        tempCelcius,
+        angleRads,
+        statorCurrentAmps);
+    StatusSignalRegistry.register(
+        wristMotorCANBus,
+        angleVelocityRadsPerSec,
+        appliedVolts,
+        currentAmps,
+        tempCelcius,
+        angleRads,
+        statorCurrentAmps);
+    CANBusPlanner.optimizeBusUtilization(pivotMotor);
   }
 
   /** Updates the set of loggable inputs. */
   @Override
   public void updateInputs(ShooterWristIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
-        angleVelocityRadsPerSec, appliedVolts, currentAmps, tempCelcius, angleRads);
     inputs.setpointAngleRads = Units.degreesToRadians(setpoint);
     inputs.angleRads = angleRads.getValueAsDouble();
     inputs.appliedVolts = appliedVolts.getValueAsDouble();
@@ -91,7 +113,7 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
   @Override
   public void setVoltage(double motorVolts) {
     Logger.recordOutput("ShooterWrist/AppliedVolts", motorVolts);
-    pivotMotor.setVoltage(motorVolts);
+    output.setVoltage(motorVolts);
   }
 
   @Override
@@ -108,7 +130,7 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
 
   public void setDesiredWristPos(double passedInPosition) {
     setpoint = passedInPosition;
-    pivotMotor.setControl(new PositionVoltage(passedInPosition));
+    output.setPosition(passedInPosition);
   }
 
   /** Go to Setpoint */
@@ -126,7 +148,9 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
   @Override
   public void setBrake(boolean brake) {
     if (brake) {
-      pivotMotor.setNeutralMode(NeutralModeValue.Coast);
+      // Queued behind the full config, which would otherwise overwrite the neutral mode
+      motorOutputConfig.NeutralMode = NeutralModeValue.Coast;
+      PhoenixConfigApplier.getInstance().apply(pivotMotor, motorOutputConfig);
     }
   }
 
@@ -143,12 +167,14 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
     if (isHomed) {
       return true;
     }
-    pivotMotor.setVoltage(3);
-    if (pivotMotor.getStatorCurrent().getValue() > 40) {
-      pivotMotor.setVoltage(0);
+    output.setVoltage(3);
+    if (statorCurrentAmps.getValueAsDouble() > 40) {
+      output.setVoltage(0);
       pivotMotor.setPosition(0);
-      pivotMotor.getConfigurator().apply(limitConfig.withForwardSoftLimitEnable(true));
-      pivotMotor.getConfigurator().apply(limitConfig.withReverseSoftLimitEnable(true));
+      PhoenixConfigApplier.getInstance()
+          .apply(
+              pivotMotor,
+              limitConfig.withForwardSoftLimitEnable(true).withReverseSoftLimitEnable(true));
       isHomed = true;
     }
     return isHomed;
@@ -156,11 +182,11 @@ public class ShooterWristIOTalonFX implements ShooterWristIO {
 
   @Override
   public void incrementShooterUp() {
-    setDesiredWristPos(pivotMotor.getPosition().getValueAsDouble() - 1.5);
+    setDesiredWristPos(angleRads.getValueAsDouble() - 1.5);
   }
 
   @Override
   public void incrementShooterDown() {
-    setDesiredWristPos(pivotMotor.getPosition().getValueAsDouble() + 1.5);
+    setDesiredWristPos(angleRads.getValueAsDouble() + 1.5);
   }
 }
@@ -0,0 +1,178 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N5;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.opencv.core.Point;
+import org.photonvision.estimation.OpenCVHelp;
+import org.photonvision.estimation.TargetModel;
+import org.photonvision.targeting.PNPResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Field tag layout with every tag's pose and corner positions worked out once at startup.
+ *
+ * <p>The layout is read from the deploy directory, falling back to the built in 2024 field. Tag
+ * poses and the field positions of their four corners are stored in arrays indexed by fiducial ID,
+ * so lookups are an array read instead of a search through the layout that returns an Optional.
+ * Nothing is modified after construction, so the solver threads can read it freely.
+ */
+public class AprilTagGeometry {
+  private static final TargetModel TAG_MODEL = TargetModel.kAprilTag36h11;
+
+  private static AprilTagGeometry instance = null;
+
+  private final AprilTagFieldLayout layout;
+  private final boolean loadedFromDeploy;
+  private final Pose3d origin;
+  private final Pose3d[] tagPoses;
+  private final List<Translation3d>[] tagCorners;
+
+  public static synchronized AprilTagGeometry getInstance() {
+    if (instance == null) {
+      instance = new AprilTagGeometry();
+    }
+    return instance;
+  }
+
+  @SuppressWarnings("unchecked")
+  private AprilTagGeometry() {
+    AprilTagFieldLayout loaded;
+    boolean fromDeploy;
+    try {
+      loaded =
+          new AprilTagFieldLayout(
+              Filesystem.getDeployDirectory()
+                  .toPath()
+                  .resolve("vision" + File.separator + "2024-crescendo.json"));
+      fromDeploy = true;
+      System.out.println("Successfully loaded tag map");
+    } catch (Exception e) {
+      System.err.println("Failed to load tag map");
+      loaded = AprilTagFields.k2024Crescendo.loadAprilTagLayoutField();
+      fromDeploy = false;
+    }
+    layout = loaded;
+    loadedFromDeploy = fromDeploy;
+    origin = layout.getOrigin();
+
+    int maxId = 0;
+    for (AprilTag tag : layout.getTags()) {
+      maxId = Math.max(maxId, tag.ID);
+    }
+    tagPoses = new Pose3d[maxId + 1];
+    // Generic arrays can't be created directly
+    tagCorners = new List[maxId + 1];
+    for (AprilTag tag : layout.getTags()) {
+      // Go through the layout so the pose is relative to its origin
+      layout
+          .getTagPose(tag.ID)
+          .ifPresent(
+              pose -> {
+                tagPoses[tag.ID] = pose;
+                tagCorners[tag.ID] = List.copyOf(TAG_MODEL.getFieldVertices(pose));
+              });
+    }
+  }
+
+  public AprilTagFieldLayout getLayout() {
+    return layout;
+  }
+
+  /** Returns false if the deploy layout failed to load and the built in one is used. */
+  public boolean isLoadedFromDeploy() {
+    return loadedFromDeploy;
+  }
+
+  public Pose3d getOrigin() {
+    return origin;
+  }
+
+  /** Returns the pose of a tag, or null if the tag is not on the field. */
+  public Pose3d getTagPose(int id) {
+    return id >= 0 && id < tagPoses.length ? tagPoses[id] : null;
+  }
+
+  /** Returns the field positions of a tag's corners, or null if the tag is not on the field. */
+  public List<Translation3d> getTagCorners(int id) {
+    return id >= 0 && id < tagCorners.length ? tagCorners[id] : null;
+  }
+
+  /**
+   * Solves the field-to-camera transform from the visible tags. Equivalent to {@link
+   * org.photonvision.estimation.VisionEstimation#estimateCamPosePNP} with this layout and 36h11
+   * tags, but reads the precomputed tag corners.
+   *
+   * @return The field-to-camera transform, or an empty result if no known tag was seen or the
+   *     solve failed.
+   */
+  public PNPResult estimateCamPosePNP(
+      Matrix<N3, N3> cameraMatrix,
+      Matrix<N5, N1> distCoeffs,
+      List<PhotonTrackedTarget> visibleTags) {
+    var imageCorners = new ArrayList<TargetCorner>(visibleTags.size() * 4);
+    var fieldCorners = new ArrayList<Translation3d>(visibleTags.size() * 4);
+    Pose3d lastTagPose = null;
+    int knownTags = 0;
+    for (var target : visibleTags) {
+      int id = target.getFiducialId();
+      List<Translation3d> corners = getTagCorners(id);
+      if (corners == null) {
+        continue;
+      }
+      knownTags++;
+      lastTagPose = tagPoses[id];
+      imageCorners.addAll(target.getDetectedCorners());
+      fieldCorners.addAll(corners);
+    }
+    if (knownTags == 0 || imageCorners.size() != fieldCorners.size()) {
+      return new PNPResult();
+    }
+    Point[] imagePoints = OpenCVHelp.cornersToPoints(imageCorners);
+
+    if (knownTags == 1) {
+      // A single tag is solved against the tag model, which also gives the ambiguous alternative
+      var cameraToTag =
+          OpenCVHelp.solvePNP_SQUARE(cameraMatrix, distCoeffs, TAG_MODEL.vertices, imagePoints);
+      if (!cameraToTag.isPresent) {
+        return new PNPResult();
+      }
+      var bestPose = lastTagPose.transformBy(cameraToTag.best.inverse());
+      var altPose =
+          cameraToTag.ambiguity != 0
+              ? lastTagPose.transformBy(cameraToTag.alt.inverse())
+              : new Pose3d();
+      var fieldOrigin = new Pose3d();
+      return new PNPResult(
+          new Transform3d(fieldOrigin, bestPose),
+          new Transform3d(fieldOrigin, altPose),
+          cameraToTag.ambiguity,
+          cameraToTag.bestReprojErr,
+          cameraToTag.altReprojErr);
+    }
+
+    var cameraToOrigin =
+        OpenCVHelp.solvePNP_SQPNP(cameraMatrix, distCoeffs, fieldCorners, imagePoints);
+    if (!cameraToOrigin.isPresent) {
+      return new PNPResult();
+    }
+    return new PNPResult(
+        cameraToOrigin.best.inverse(),
+        cameraToOrigin.alt.inverse(),
+        cameraToOrigin.ambiguity,
+        cameraToOrigin.bestReprojErr,
+        cameraToOrigin.altReprojErr);
+  }
+}
@@ -0,0 +1,210 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.littletonrobotics.junction.LogTable;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Packed log format for a list of {@link PhotonTrackedTarget}s.
+ *
+ * <p>Every target field is stored in one flat double array under a fixed key, with targets laid
+ * out back to back (transforms take 7 slots: translation xyz then quaternion wxyz, corners take 4).
+ * Values are packed into reusable scratch arrays and only copied into a new array when they differ
+ * from what was logged last loop. LogTable keeps the array it is given, so changed data has to be a
+ * fresh array, but unchanged data costs no allocation at all.
+ */
+public class TrackedTargetLog {
+  public static final String YAW_KEY = "Targets/Yaw";
+  public static final String PITCH_KEY = "Targets/Pitch";
+  public static final String AREA_KEY = "Targets/Area";
+  public static final String SKEW_KEY = "Targets/Skew";
+  public static final String FIDUCIAL_ID_KEY = "Targets/Fiducial ID";
+  public static final String POSE_AMBIGUITY_KEY = "Targets/Pose Ambiguity";
+  public static final String BEST_TRANSFORM_KEY = "Targets/Best Camera To Target";
+  public static final String ALT_TRANSFORM_KEY = "Targets/Alt Camera To Target";
+  public static final String DETECTED_CORNERS_X_KEY = "Targets/Detected Corners X";
+  public static final String DETECTED_CORNERS_Y_KEY = "Targets/Detected Corners Y";
+  public static final String MIN_AREA_RECT_CORNERS_X_KEY = "Targets/Min Area Rect Corners X";
+  public static final String MIN_AREA_RECT_CORNERS_Y_KEY = "Targets/Min Area Rect Corners Y";
+
+  private static final int TRANSFORM_STRIDE = 7;
+  private static final int CORNER_STRIDE = 4;
+  private static final double[] EMPTY = new double[] {};
+
+  private final PackedField yaw = new PackedField(YAW_KEY, 1);
+  private final PackedField pitch = new PackedField(PITCH_KEY, 1);
+  private final PackedField area = new PackedField(AREA_KEY, 1);
+  private final PackedField skew = new PackedField(SKEW_KEY, 1);
+  private final PackedField fiducialId = new PackedField(FIDUCIAL_ID_KEY, 1);
+  private final PackedField poseAmbiguity = new PackedField(POSE_AMBIGUITY_KEY, 1);
+  private final PackedField bestTransform = new PackedField(BEST_TRANSFORM_KEY, TRANSFORM_STRIDE);
+  private final PackedField altTransform = new PackedField(ALT_TRANSFORM_KEY, TRANSFORM_STRIDE);
+  private final PackedField detectedCornersX =
+      new PackedField(DETECTED_CORNERS_X_KEY, CORNER_STRIDE);
+  private final PackedField detectedCornersY =
+      new PackedField(DETECTED_CORNERS_Y_KEY, CORNER_STRIDE);
+  private final PackedField minAreaRectCornersX =
+      new PackedField(MIN_AREA_RECT_CORNERS_X_KEY, CORNER_STRIDE);
+  private final PackedField minAreaRectCornersY =
+      new PackedField(MIN_AREA_RECT_CORNERS_Y_KEY, CORNER_STRIDE);
+  private final PackedField[] fields =
+      new PackedField[] {
+        yaw,
+        pitch,
+        area,
+        skew,
+        fiducialId,
+        poseAmbiguity,
+        bestTransform,
+        altTransform,
+        detectedCornersX,
+        detectedCornersY,
+        minAreaRectCornersX,
+        minAreaRectCornersY
+      };
+
+  /** Writes the targets to the table. */
+  public void write(List<PhotonTrackedTarget> targets, LogTable table) {
+    int count = targets.size();
+    for (var field : fields) {
+      field.begin(count);
+    }
+    for (int i = 0; i < count; i++) {
+      var target = targets.get(i);
+      yaw.scratch[i] = target.getYaw();
+      pitch.scratch[i] = target.getPitch();
+      area.scratch[i] = target.getArea();
+      skew.scratch[i] = target.getSkew();
+      fiducialId.scratch[i] = target.getFiducialId();
+      poseAmbiguity.scratch[i] = target.getPoseAmbiguity();
+      packTransform(target.getBestCameraToTarget(), bestTransform.scratch, i * TRANSFORM_STRIDE);
+      packTransform(
+          target.getAlternateCameraToTarget(), altTransform.scratch, i * TRANSFORM_STRIDE);
+      packCorners(
+          target.getDetectedCorners(),
+          detectedCornersX.scratch,
+          detectedCornersY.scratch,
+          i * CORNER_STRIDE);
+      packCorners(
+          target.getMinAreaRectCorners(),
+          minAreaRectCornersX.scratch,
+          minAreaRectCornersY.scratch,
+          i * CORNER_STRIDE);
+    }
+    for (var field : fields) {
+      field.commit(table);
+    }
+  }
+
+  /** Rebuilds the logged targets from the table, used during replay. */
+  public static List<PhotonTrackedTarget> read(LogTable table) {
+    double[] yaws = table.get(YAW_KEY, EMPTY);
+    double[] pitches = table.get(PITCH_KEY, EMPTY);
+    double[] areas = table.get(AREA_KEY, EMPTY);
+    double[] skews = table.get(SKEW_KEY, EMPTY);
+    double[] ids = table.get(FIDUCIAL_ID_KEY, EMPTY);
+    double[] ambiguities = table.get(POSE_AMBIGUITY_KEY, EMPTY);
+    double[] best = table.get(BEST_TRANSFORM_KEY, EMPTY);
+    double[] alt = table.get(ALT_TRANSFORM_KEY, EMPTY);
+    double[] detectedX = table.get(DETECTED_CORNERS_X_KEY, EMPTY);
+    double[] detectedY = table.get(DETECTED_CORNERS_Y_KEY, EMPTY);
+    double[] minAreaX = table.get(MIN_AREA_RECT_CORNERS_X_KEY, EMPTY);
+    double[] minAreaY = table.get(MIN_AREA_RECT_CORNERS_Y_KEY, EMPTY);
+
+    int count = yaws.length;
+    List<PhotonTrackedTarget> targets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      targets.add(
+          new PhotonTrackedTarget(
+              yaws[i],
+              pitches[i],
+              areas[i],
+              skews[i],
+              (int) ids[i],
+              unpackTransform(best, i * TRANSFORM_STRIDE),
+              unpackTransform(alt, i * TRANSFORM_STRIDE),
+              ambiguities[i],
+              unpackCorners(minAreaX, minAreaY, i * CORNER_STRIDE),
+              unpackCorners(detectedX, detectedY, i * CORNER_STRIDE)));
+    }
+    return targets;
+  }
+
+  private static void packTransform(Transform3d transform, double[] out, int offset) {
+    var translation = transform.getTranslation();
+    var quaternion = transform.getRotation().getQuaternion();
+    out[offset] = translation.getX();
+    out[offset + 1] = translation.getY();
+    out[offset + 2] = translation.getZ();
+    out[offset + 3] = quaternion.getW();
+    out[offset + 4] = quaternion.getX();
+    out[offset + 5] = quaternion.getY();
+    out[offset + 6] = quaternion.getZ();
+  }
+
+  private static Transform3d unpackTransform(double[] in, int offset) {
+    return new Transform3d(
+        new Translation3d(in[offset], in[offset + 1], in[offset + 2]),
+        new Rotation3d(
+            new Quaternion(in[offset + 3], in[offset + 4], in[offset + 5], in[offset + 6])));
+  }
+
+  // Tags always report four corners, anything missing is logged as zero
+  private static void packCorners(
+      List<TargetCorner> corners, double[] xs, double[] ys, int offset) {
+    for (int i = 0; i < CORNER_STRIDE; i++) {
+      if (i < corners.size()) {
+        var corner = corners.get(i);
+        xs[offset + i] = corner.x;
+        ys[offset + i] = corner.y;
+      } else {
+        xs[offset + i] = 0.0;
+        ys[offset + i] = 0.0;
+      }
+    }
+  }
+
+  private static List<TargetCorner> unpackCorners(double[] xs, double[] ys, int offset) {
+    List<TargetCorner> corners = new ArrayList<>(CORNER_STRIDE);
+    for (int i = 0; i < CORNER_STRIDE; i++) {
+      corners.add(new TargetCorner(xs[offset + i], ys[offset + i]));
+    }
+    return corners;
+  }
+
+  /** One packed field: a reusable scratch array and the array last handed to the log. */
+  private static class PackedField {
+    private final String key;
+    private final int stride;
+    private double[] scratch = new double[0];
+    private int length = 0;
+    private double[] logged = null;
+
+    private PackedField(String key, int stride) {
+      this.key = key;
+      this.stride = stride;
+    }
+
+    private void begin(int count) {
+      length = count * stride;
+      if (scratch.length < length) {
+        scratch = new double[length];
+      }
+    }
+
+    private void commit(LogTable table) {
+      if (logged != null && Arrays.equals(scratch, 0, length, logged, 0, logged.length)) {
+        return; // The table already holds this value
+      }
+      logged = length == 0 ? EMPTY : Arrays.copyOf(scratch, length);
+      table.put(key, logged);
+    }
+  }
+}
@@ -48,6 +48,15 @@ public class Vision {
   }
 
   public Optional<EstimatedRobotPose> update(PhotonPipelineResult result) {
+    return estimate(result, inputs.constants, inputs.coprocPNPTransform);
+  }
+
+  /**
+   * Estimates the robot pose from a pipeline result. Only reads its arguments, so it is safe to run
+   * off the main thread.
+   */
+  public static Optional<EstimatedRobotPose> estimate(
+      PhotonPipelineResult result, VisionConstants constants, Transform3d coprocPNPTransform) {
     // Skip if we only have 1 target
     // TODO change
     // if (result.getTargets().size() < 1) {
@@ -56,11 +65,11 @@ public class Vision {
     var estPose =
         VisionHelper.update(
             result,
-            inputs.constants.intrinsicsMatrix(),
-            inputs.constants.distCoeffs(),
+            constants.intrinsicsMatrix(),
+            constants.distCoeffs(),
             PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-            inputs.constants.robotToCamera(),
-            inputs.coprocPNPTransform);
+            constants.robotToCamera(),
+            coprocPNPTransform);
     // // Reject if estimated pose is in the air or ground
     if (estPose.isPresent() && Math.abs(estPose.get().estimatedPose.getZ()) > 0.25) {
       return Optional.empty();
@@ -0,0 +1,140 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.subsystems.vision.Vision.VisionConstants;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * Solves camera poses on a small worker pool so SolvePNP does not run on the main loop.
+ *
+ * <p>Each loop the main thread first collects the solves submitted on the previous loop, in camera
+ * index order, then submits that loop's new results. A camera has at most one solve in flight, so
+ * the pool queue is bounded by the camera count. Solves finish well inside a loop, so collection
+ * normally never waits. In deterministic mode (log replay) collection waits for every solve. That
+ * way a result is always applied exactly one loop after its inputs were read, no matter how fast
+ * the machine is. Otherwise the wait is capped and a slow solve is picked up on a later loop
+ * instead.
+ */
+public class VisionEstimationEngine {
+  // Longest total time the main loop waits on workers per cycle outside of replay
+  private static final long COLLECT_BUDGET_NANOS = 4_000_000;
+
+  private final ThreadPoolExecutor pool;
+  private final boolean deterministic;
+  private final Future<Optional<EstimatedRobotPose>>[] pending;
+  private final Optional<EstimatedRobotPose>[] collected;
+  // Only the first failure per camera is reported, the rest are just counted
+  private final boolean[] failureReported;
+
+  private long lateSolves = 0;
+  private long failedSolves = 0;
+
+  @SuppressWarnings("unchecked")
+  public VisionEstimationEngine(int cameraCount, boolean deterministic) {
+    this.deterministic = deterministic;
+    // Generic arrays can't be created directly
+    pending = new Future[cameraCount];
+    collected = new Optional[cameraCount];
+    Arrays.fill(collected, Optional.empty());
+    failureReported = new boolean[cameraCount];
+    // The roboRIO only has two cores, leave one for the main loop
+    int threads =
+        Math.max(1, Math.min(cameraCount, Runtime.getRuntime().availableProcessors() - 1));
+    AtomicInteger threadCount = new AtomicInteger();
+    pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, cameraCount)),
+            runnable -> {
+              Thread thread = new Thread(runnable, "VisionSolver" + threadCount.getAndIncrement());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Returns true if the camera still has a solve that has not been collected. */
+  public boolean isPending(int camera) {
+    return pending[camera] != null;
+  }
+
+  /**
+   * Starts solving a pipeline result. Everything the solve reads is passed in so the worker never
+   * touches inputs the main thread is refreshing.
+   */
+  public void submit(
+      int camera,
+      PhotonPipelineResult result,
+      VisionConstants constants,
+      Transform3d coprocPNPTransform) {
+    if (pending[camera] != null) {
+      return;
+    }
+    pending[camera] = pool.submit(() -> Vision.estimate(result, constants, coprocPNPTransform));
+  }
+
+  /**
+   * Collects the solves submitted last loop. Call once per loop before {@link #submit}, then read
+   * them with {@link #getCollected(int)}.
+   */
+  public void collect() {
+    long deadline = System.nanoTime() + COLLECT_BUDGET_NANOS;
+    for (int i = 0; i < pending.length; i++) {
+      collected[i] = Optional.empty();
+      Future<Optional<EstimatedRobotPose>> solve = pending[i];
+      if (solve == null) {
+        continue;
+      }
+      try {
+        if (deterministic) {
+          collected[i] = solve.get();
+        } else {
+          collected[i] = solve.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        pending[i] = null;
+      } catch (TimeoutException e) {
+        lateSolves++; // Leave it in flight and pick it up next loop
+      } catch (ExecutionException e) {
+        failedSolves++;
+        pending[i] = null;
+        if (!failureReported[i]) {
+          failureReported[i] = true;
+          DriverStation.reportError(
+              "[VisionEstimationEngine] Camera " + i + " solve failed: " + e.getCause(),
+              e.getCause().getStackTrace());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /** Returns the pose solved for a camera by the last {@link #collect()}, if any. */
+  public Optional<EstimatedRobotPose> getCollected(int camera) {
+    return collected[camera];
+  }
+
+  /** Returns the number of times a solve was not ready when collected. */
+  public long getLateSolves() {
+    return lateSolves;
+  }
+
+  /** Returns the number of solves that threw. */
+  public long getFailedSolves() {
+    return failedSolves;
+  }
+}
@@ -4,39 +4,36 @@
 
 package frc.robot.subsystems.vision;
 
-import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.math.MatBuilder;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.geometry.Quaternion;
-import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
-import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.numbers.N5;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import frc.robot.Robot;
-import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.vision.Vision.VisionConstants;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import org.littletonrobotics.junction.LogTable;
-import org.littletonrobotics.junction.Logger;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
-import org.photonvision.estimation.TargetModel;
-import org.photonvision.estimation.VisionEstimation;
 import org.photonvision.simulation.VisionSystemSim;
 import org.photonvision.targeting.PNPResult;
 import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
-import org.photonvision.targeting.TargetCorner;
 
 public class VisionHelper {
+  private static final AtomicLong multiTagFallbacks = new AtomicLong();
+
+  /** Returns how many times multi-tag SolvePNP on the RIO failed and fell back. */
+  public static long getMultiTagFallbacks() {
+    return multiTagFallbacks.get();
+  }
 
   /***
    * To be added
@@ -56,119 +53,30 @@ public class VisionHelper {
               new UnitDeviationParams(.25, .07, .25), new UnitDeviationParams(.15, 1, 1.5)));
 
   public class Logging {
-    public static void logPhotonTrackedTarget(
-        PhotonTrackedTarget target, LogTable table, String name) {
-      logTransform3d(target.getBestCameraToTarget(), table, name);
-      logTransform3d(target.getAlternateCameraToTarget(), table, "Alt " + name);
-      logCorners(target, table, name);
-
-      table.put("Tags/Yaw " + name, target.getYaw());
-      table.put("Tags/Pitch " + name, target.getPitch());
-      table.put("Tags/Area " + name, target.getArea());
-      table.put("Tags/Skew " + name, target.getSkew());
-      table.put("Tags/Fiducial ID " + name, target.getFiducialId());
-      table.put("Tags/Pose Ambiguity " + name, target.getPoseAmbiguity());
-    }
-
-    public static void logCorners(PhotonTrackedTarget target, LogTable table, String name) {
-      double[] detectedCornersX = new double[4];
-      double[] detectedCornersY = new double[4];
-      double[] minAreaRectCornersX = new double[4];
-      double[] minAreaRectCornersY = new double[4];
-
-      for (int i = 0; i < 4; i++) {
-        detectedCornersX[i] = target.getDetectedCorners().get(i).x;
-        detectedCornersY[i] = target.getDetectedCorners().get(i).y;
-        minAreaRectCornersX[i] = target.getMinAreaRectCorners().get(i).x;
-        minAreaRectCornersY[i] = target.getMinAreaRectCorners().get(i).y;
-      }
-      table.put("Tags/Detected Corners X " + name, detectedCornersX);
-      table.put("Tags/Detected Corners Y " + name, detectedCornersY);
-      table.put("Tags/Min Area Rect Corners X " + name, minAreaRectCornersX);
-      table.put("Tags/Min Area Rect Corners Y " + name, minAreaRectCornersY);
-    }
-
-    public static void logTransform3d(Transform3d transform3d, LogTable table, String name) {
-      double rotation[] = new double[4];
-      rotation[0] = transform3d.getRotation().getQuaternion().getW();
-      rotation[1] = transform3d.getRotation().getQuaternion().getX();
-      rotation[2] = transform3d.getRotation().getQuaternion().getY();
-      rotation[3] = transform3d.getRotation().getQuaternion().getZ();
-      table.put("Tags/Rotation " + name, rotation);
-
-      double translation[] = new double[3];
-      translation[0] = transform3d.getTranslation().getX();
-      translation[1] = transform3d.getTranslation().getY();
-      translation[2] = transform3d.getTranslation().getZ();
-      table.put("Tags/Translation " + name, translation);
-    }
+    private static final String CONSTANTS_NAME_KEY = "Vision Constants/Name ";
+    private static final String CONSTANTS_TRANSFORM_KEY = "Vision Constants/Transform ";
+    private static final String CONSTANTS_INTRINSICS_KEY = "Vision Constants/Intrinsics ";
+    private static final String CONSTANTS_DISTORTION_KEY = "Vision Constants/Distortion ";
 
     public static void logVisionConstants(VisionConstants constants, LogTable table) {
-      table.put("Vision Constants/Name ", constants.cameraName());
-      table.put("Vision Constants/Transform ", constants.robotToCamera());
-      table.put("Vision Constants/Intrinsics ", constants.intrinsicsMatrix().getData());
-      table.put("Vision Constants/Distortion ", constants.distCoeffs().getData());
-    }
-
-    public static Transform3d getLoggedTransform3d(double[] translation, double[] rotation) {
-      Transform3d transform3d =
-          new Transform3d(
-              new Translation3d(translation[0], translation[1], translation[2]),
-              new Rotation3d(new Quaternion(rotation[0], rotation[1], rotation[2], rotation[3])));
-      return transform3d;
-    }
-
-    public static Transform3d getLoggedTransform3d(LogTable table, String name) {
-      double[] rotation = table.get("Tags/Rotation " + name, new double[4]);
-      double[] translation = table.get("Tags/Translation " + name, new double[3]);
-      return getLoggedTransform3d(translation, rotation);
-    }
-
-    public static PhotonTrackedTarget getLoggedPhotonTrackedTarget(LogTable table, String name) {
-      double[] translation = table.get("Tags/Translation " + name, new double[3]);
-      double[] rotation = table.get("Tags/Rotation " + name, new double[4]);
-      double[] altTranslation = table.get("Tags/Translation Alt " + name, new double[3]);
-      double[] altRotation = table.get("Tags/Rotation Alt " + name, new double[4]);
-      double[] detectedCornersX = table.get("Tags/Detected Corners X " + name, new double[4]);
-      double[] detectedCornersY = table.get("Tags/Detected Corners Y " + name, new double[4]);
-      double[] minAreaRectCornersX =
-          table.get("Tags/Min Area Rect Corners X " + name, new double[4]);
-      double[] minAreaRectCornersY =
-          table.get("Tags/Min Area Rect Corners Y " + name, new double[4]);
-      List<TargetCorner> detectedCorners = new ArrayList<>();
-      List<TargetCorner> minAreaRectCorners = new ArrayList<>();
-
-      for (int i = 0; i < 4; i++) {
-        detectedCorners.add(new TargetCorner(detectedCornersX[i], detectedCornersY[i]));
-        minAreaRectCorners.add(new TargetCorner(minAreaRectCornersX[i], minAreaRectCornersY[i]));
-      }
-      Transform3d pose = getLoggedTransform3d(translation, rotation);
-      Transform3d altPose = getLoggedTransform3d(altTranslation, altRotation);
-      return (new PhotonTrackedTarget(
-          table.get("Tags/Yaw " + name, -1),
-          table.get("Tags/Pitch " + name, -1),
-          table.get("Tags/Area " + name, -1),
-          table.get("Tags/Skew " + name, -1),
-          (int) (table.get("Tags/Fiducial ID " + name, -1)),
-          pose,
-          altPose,
-          table.get("Tags/Pose Ambiguity " + name, -1),
-          minAreaRectCorners,
-          detectedCorners));
+      table.put(CONSTANTS_NAME_KEY, constants.cameraName());
+      table.put(CONSTANTS_TRANSFORM_KEY, constants.robotToCamera());
+      table.put(CONSTANTS_INTRINSICS_KEY, constants.intrinsicsMatrix().getData());
+      table.put(CONSTANTS_DISTORTION_KEY, constants.distCoeffs().getData());
     }
 
     public static VisionConstants getLoggedVisionConstants(LogTable table) {
       return new VisionConstants(
-          table.get("Vision Constants Name ", "Default"),
-          table.get("Vision Constants Transform ", new Transform3d()),
+          table.get(CONSTANTS_NAME_KEY, "Default"),
+          table.get(CONSTANTS_TRANSFORM_KEY, new Transform3d()),
           new Matrix<N3, N3>(
               Nat.N3(),
               Nat.N3(),
-              table.get("Vision Constants Intrinsics ", Matrix.eye(Nat.N3()).getData())),
+              table.get(CONSTANTS_INTRINSICS_KEY, Matrix.eye(Nat.N3()).getData())),
           new Matrix<N5, N1>(
               Nat.N5(),
               Nat.N1(),
-              table.get("Vision Constants Distortion ", new double[] {0.0, 0.0, 0.0, 0.0, 0.0})));
+              table.get(CONSTANTS_DISTORTION_KEY, new double[] {0.0, 0.0, 0.0, 0.0, 0.0})));
     }
   }
 
@@ -212,7 +120,6 @@ public class VisionHelper {
                 cameraResult,
                 Optional.of(cameraMatrix),
                 Optional.of(distCoeffs),
-                Drive.fieldTags,
                 PoseStrategy.LOWEST_AMBIGUITY,
                 robotToCamera);
         break;
@@ -256,7 +163,6 @@ public class VisionHelper {
       PhotonPipelineResult result,
       Optional<Matrix<N3, N3>> cameraMatrix,
       Optional<Matrix<N5, N1>> distCoeffs,
-      AprilTagFieldLayout fieldTags,
       PoseStrategy multiTagFallbackStrategy,
       Transform3d robotToCamera) {
     boolean hasCalibData = cameraMatrix.isPresent() && distCoeffs.isPresent();
@@ -272,15 +178,11 @@ public class VisionHelper {
     }
 
     PNPResult pnpResult =
-        VisionEstimation.estimateCamPosePNP(
-            cameraMatrix.get(),
-            distCoeffs.get(),
-            result.getTargets(),
-            Drive.fieldTags,
-            TargetModel.kAprilTag36h11);
+        AprilTagGeometry.getInstance()
+            .estimateCamPosePNP(cameraMatrix.get(), distCoeffs.get(), result.getTargets());
     // try fallback strategy if solvePNP fails for some reason
     if (!pnpResult.isPresent) {
-      Logger.recordOutput("Vision/ Fall Back", true);
+      multiTagFallbacks.incrementAndGet(); // May run on a solver thread, so no logging here
       return update(
           result,
           cameraMatrix.get(),
@@ -331,7 +233,7 @@ public class VisionHelper {
       var best =
           new Pose3d()
               .plus(best_tf) // field-to-camera
-              .relativeTo(Drive.fieldTags.getOrigin())
+              .relativeTo(AprilTagGeometry.getInstance().getOrigin())
               .plus(robotToCamera.inverse()); // field-to-robot
       return Optional.of(
           new EstimatedRobotPose(
@@ -383,9 +285,9 @@ public class VisionHelper {
     if (lowestAmbiguityTarget == null) return Optional.empty();
     int targetFiducialId = lowestAmbiguityTarget.getFiducialId();
 
-    Optional<Pose3d> targetPosition = Drive.fieldTags.getTagPose(targetFiducialId);
+    Pose3d targetPosition = AprilTagGeometry.getInstance().getTagPose(targetFiducialId);
 
-    if (targetPosition.isEmpty()) {
+    if (targetPosition == null) {
       DriverStation.reportError(
           "[PhotonPoseEstimator] Tried to get pose of unknown AprilTag: " + targetFiducialId,
           false);
@@ -394,7 +296,6 @@ public class VisionHelper {
     var estimatedRobotPose =
         new EstimatedRobotPose(
             targetPosition
-                .get()
                 .transformBy(lowestAmbiguityTarget.getBestCameraToTarget().inverse())
                 .transformBy(robotToCamera.inverse()),
             result.getTimestampSeconds(),
@@ -1,7 +1,6 @@
 package frc.robot.subsystems.vision;
 
 import edu.wpi.first.math.geometry.Pose3d;
-import frc.robot.subsystems.drive.Drive;
 import org.littletonrobotics.junction.LogTable;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.inputs.LoggableInputs;
@@ -12,37 +11,66 @@ import org.littletonrobotics.junction.inputs.LoggableInputs;
  */
 public class VisionIOInputsLogged extends VisionIO.VisionIOInputs
     implements LoggableInputs, Cloneable {
+  private static final String TIMESTAMP_KEY = "Timestamp";
+  private static final String LATENCY_KEY = "Latency";
+  private static final String NUM_TAGS_KEY = "NumTags";
+  private static final String POSE_KEY = "Pose";
+  private static final String TARGET_POSE3DS_KEY = "Target Pose3ds";
+
+  private final TrackedTargetLog targetLog = new TrackedTargetLog();
+  // Only rebuilt and relogged when the set of visible tags changes
+  private int[] targetPoseIds = new int[] {};
+  private VisionConstants loggedConstants = null;
+
   @Override
   public void toLog(LogTable table) {
-    table.put("Timestamp", timestamp);
-    table.put("Latency", latency);
+    table.put(TIMESTAMP_KEY, timestamp);
+    table.put(LATENCY_KEY, latency);
     Logger.recordOutput("Poses 3d", coprocPNPTransform);
-    targetPose3ds = new Pose3d[targets.size()];
-    for (int i = 0; i < targets.size(); i++) {
-      VisionHelper.Logging.logPhotonTrackedTarget(targets.get(i), table, String.valueOf(i));
-      targetPose3ds[i] = Drive.fieldTags.getTagPose(targets.get(i).getFiducialId()).get();
-    }
-    table.put("NumTags", targets.size());
-    table.put("Pose", coprocPNPTransform);
+    targetLog.write(targets, table);
+    table.put(NUM_TAGS_KEY, targets.size());
+    table.put(POSE_KEY, coprocPNPTransform);
     // System.out.printLn(coprocPNPTransform);
     // System.out.println(coprocPNPTransform + ": " + coprocPNPTransform.toString());
-    table.put("Target Pose3ds", targetPose3ds);
-    VisionHelper.Logging.logVisionConstants(constants, table);
+    if (updateTargetPose3ds()) {
+      table.put(TARGET_POSE3DS_KEY, targetPose3ds);
+    }
+    if (constants != loggedConstants) {
+      VisionHelper.Logging.logVisionConstants(constants, table);
+      loggedConstants = constants;
+    }
   }
 
   @Override
   public void fromLog(LogTable table) {
-    timestamp = table.get("Timestamp", timestamp);
-    latency = table.get("Latency", latency);
-    for (int i = 0; i < table.get("NumTags", numTags); i++) {
-      this.targets.add(VisionHelper.Logging.getLoggedPhotonTrackedTarget(table, String.valueOf(i)));
-    }
-    numTags = table.get("NumTags", numTags);
-    coprocPNPTransform = table.get("Pose", coprocPNPTransform);
-    targetPose3ds = table.get("Target Pose3ds", targetPose3ds);
+    timestamp = table.get(TIMESTAMP_KEY, timestamp);
+    latency = table.get(LATENCY_KEY, latency);
+    targets = TrackedTargetLog.read(table);
+    numTags = table.get(NUM_TAGS_KEY, numTags);
+    coprocPNPTransform = table.get(POSE_KEY, coprocPNPTransform);
+    targetPose3ds = table.get(TARGET_POSE3DS_KEY, targetPose3ds);
     constants = VisionHelper.Logging.getLoggedVisionConstants(table);
   }
 
+  // Returns true if the visible tags changed and targetPose3ds was rebuilt
+  private boolean updateTargetPose3ds() {
+    boolean changed = targetPoseIds.length != targets.size();
+    for (int i = 0; !changed && i < targets.size(); i++) {
+      changed = targetPoseIds[i] != targets.get(i).getFiducialId();
+    }
+    if (!changed) {
+      return false;
+    }
+    targetPoseIds = new int[targets.size()];
+    targetPose3ds = new Pose3d[targets.size()];
+    for (int i = 0; i < targets.size(); i++) {
+      targetPoseIds[i] = targets.get(i).getFiducialId();
+      Pose3d tagPose = AprilTagGeometry.getInstance().getTagPose(targetPoseIds[i]);
+      targetPose3ds[i] = tagPose != null ? tagPose : new Pose3d();
+    }
+    return true;
+  }
+
   public VisionIOInputsLogged clone() {
     VisionIOInputsLogged copy = new VisionIOInputsLogged();
     copy.timestamp = this.timestamp;
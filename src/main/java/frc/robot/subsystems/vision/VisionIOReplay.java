@@ -0,0 +1,27 @@
+package frc.robot.subsystems.vision;
+
+import frc.robot.subsystems.vision.Vision.VisionConstants;
+import java.util.Optional;
+import org.photonvision.EstimatedRobotPose;
+
+/** Vision IO for log replay. Inputs come from the log, no camera or simulation is created. */
+public class VisionIOReplay implements VisionIO {
+  private final VisionConstants constants;
+
+  public VisionIOReplay(VisionConstants constants) {
+    this.constants = constants;
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    inputs.constants = constants;
+  }
+
+  @Override
+  public void setSimPose(Optional<EstimatedRobotPose> simEst, Vision camera, boolean newResult) {}
+
+  @Override
+  public String getName() {
+    return constants.cameraName();
+  }
+}
@@ -9,6 +9,7 @@ import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import frc.robot.subsystems.vision.Vision.VisionConstants;
+import frc.robot.util.SimHarness;
 import java.util.Optional;
 import java.util.function.Supplier;
 import org.photonvision.EstimatedRobotPose;
@@ -36,7 +37,8 @@ public class VisionIOSim implements VisionIO {
     cameraProp.setCalibError(0.0, 0.0);
     cameraProp.setFPS(50.0);
     cameraProp.setAvgLatencyMs(30.0);
-    cameraProp.setLatencyStdDevMs(5.0);
+    // PhotonLib's latency noise can't be seeded, so harness runs go without it
+    cameraProp.setLatencyStdDevMs(SimHarness.isEnabled() ? 0.0 : 5.0);
     this.camera = new PhotonCamera(constants.cameraName());
     this.simCamera = new PhotonCameraSim(camera, cameraProp);
     simCamera.enableDrawWireframe(true);
@@ -14,8 +14,6 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import frc.robot.FieldConstants;
 
 /** Utility functions for flipping from the blue to red alliance. */
@@ -73,8 +71,8 @@ public class AllianceFlipUtil {
     }
   }
 
+  /** Returns whether we are on the red alliance, as of the last {@link FieldGeometry#update()}. */
   public static boolean shouldFlip() {
-    return DriverStation.getAlliance().isPresent()
-        && DriverStation.getAlliance().get() == Alliance.Red;
+    return FieldGeometry.isFlipped();
   }
 }
@@ -0,0 +1,37 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes the calling thread has allocated on the heap. Used to check that hot
+ * loops stay allocation free: take a reading before and after the section and log the difference.
+ */
+public class AllocationCounter {
+  private static final com.sun.management.ThreadMXBean threadBean;
+
+  static {
+    var bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean sunBean
+        && sunBean.isThreadAllocatedMemorySupported()) {
+      sunBean.setThreadAllocatedMemoryEnabled(true);
+      threadBean = sunBean;
+    } else {
+      threadBean = null;
+    }
+  }
+
+  private AllocationCounter() {}
+
+  /** Returns true if the JVM can report per-thread allocations. */
+  public static boolean isSupported() {
+    return threadBean != null;
+  }
+
+  /**
+   * Returns the total bytes allocated by the current thread so far, or -1 if the JVM does not
+   * support it.
+   */
+  public static long getThreadAllocatedBytes() {
+    return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+  }
+}
@@ -0,0 +1,240 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Picks status signal update rates so each CAN bus stays within a utilization budget.
+ *
+ * <p>IOs request a rate for their signals instead of setting it, and mark the ones that can't be
+ * slowed down, like odometry, as critical. {@link #applyPlan()} runs once after every subsystem is
+ * constructed. It estimates each bus's load from the frames per second requested. If the load is
+ * over budget, every non-critical rate is scaled down by the same factor, but never below {@link
+ * #MIN_FREQUENCY_HZ}. If there is spare capacity, signals that allow it are sped up toward their
+ * max rate. The plan is then applied, devices are told to stop sending everything else, and the
+ * plan is printed and logged under "CANBus/".
+ *
+ * <p>Critical signals whose owner adapts their rate to the bus, like odometry, change it through
+ * {@link #setCriticalFrequency} so the recorded plan follows. The bus is logged again by the next
+ * {@link #periodic()}.
+ *
+ * <p>The load estimate treats every signal as its own frame. Phoenix packs some signals into shared
+ * frames, so the real load is lower and the estimate errs on the safe side.
+ */
+public class CANBusPlanner {
+  public static final double DEFAULT_BUDGET = 0.6;
+  public static final double MIN_FREQUENCY_HZ = 4.0;
+  public static final double MAX_FREQUENCY_HZ = 1000.0;
+  // Approximate time a status frame holds the bus, with bit stuffing and interframe space
+  private static final double CAN_FRAME_SECONDS = 135e-6; // Classic CAN at 1 Mbit/s
+  private static final double CAN_FD_FRAME_SECONDS = 60e-6; // CANivore, faster data phase
+
+  private record Request(
+      double requestedHz, double maxHz, boolean critical, BaseStatusSignal[] signals) {}
+
+  private static final Map<String, List<Request>> requestsByBus = new LinkedHashMap<>();
+  private static final Map<String, Double> budgets = new HashMap<>();
+  private static final List<ParentDevice> devicesToOptimize = new ArrayList<>();
+  private static boolean applied = false;
+  // Rate each request is actually running at, changed from odometry threads after the plan
+  private static final Map<Request, Double> plannedRates = new HashMap<>();
+  private static final Set<String> changedBuses = new LinkedHashSet<>();
+  private static final Object planLock = new Object();
+
+  private CANBusPlanner() {}
+
+  /** Sets the fraction of a bus's capacity the plan may use, {@link #DEFAULT_BUDGET} if unset. */
+  public static void setBudget(String bus, double fraction) {
+    budgets.put(busName(bus), fraction);
+  }
+
+  /** Requests a rate for signals the plan may slow down but won't speed up. */
+  public static void request(String bus, double frequencyHz, BaseStatusSignal... signals) {
+    request(bus, frequencyHz, frequencyHz, signals);
+  }
+
+  /** Requests a rate for signals the plan may slow down or speed up to at most maxFrequencyHz. */
+  public static void request(
+      String bus, double frequencyHz, double maxFrequencyHz, BaseStatusSignal... signals) {
+    addRequest(bus, new Request(frequencyHz, maxFrequencyHz, false, signals));
+  }
+
+  /** Requests a rate for signals that always run at exactly that rate, like odometry. */
+  public static void requestCritical(String bus, double frequencyHz, BaseStatusSignal... signals) {
+    addRequest(bus, new Request(frequencyHz, frequencyHz, true, signals));
+  }
+
+  /**
+   * Stops the device sending any signal that wasn't requested, once the plan has been applied.
+   * Use in place of {@link ParentDevice#optimizeBusUtilization()}, which would turn off the
+   * requested signals too if called before their rates are set.
+   */
+  public static void optimizeBusUtilization(ParentDevice device) {
+    if (applied) {
+      device.optimizeBusUtilization();
+    } else {
+      devicesToOptimize.add(device);
+    }
+  }
+
+  /** Computes the plan and applies it, call once after every subsystem is constructed. */
+  public static void applyPlan() {
+    for (var entry : requestsByBus.entrySet()) {
+      String bus = entry.getKey();
+      List<Request> requests = entry.getValue();
+      double frameSeconds = bus.equals("rio") ? CAN_FRAME_SECONDS : CAN_FD_FRAME_SECONDS;
+      double budget = budgets.getOrDefault(bus, DEFAULT_BUDGET);
+
+      double criticalLoad = 0.0;
+      double flexibleLoad = 0.0;
+      for (Request request : requests) {
+        double load = request.requestedHz() * request.signals().length * frameSeconds;
+        if (request.critical()) {
+          criticalLoad += load;
+        } else {
+          flexibleLoad += load;
+        }
+      }
+      // Scale every flexible rate by how much of the budget is left for them
+      double scale =
+          flexibleLoad > 0.0 ? Math.max(0.0, budget - criticalLoad) / flexibleLoad : 1.0;
+
+      double plannedLoad = 0.0;
+      System.out.println("[CANBusPlanner] " + bus + ", budget " + percent(budget));
+      for (Request request : requests) {
+        double hz = request.requestedHz();
+        if (!request.critical()) {
+          double maxHz = Math.min(request.maxHz(), MAX_FREQUENCY_HZ);
+          hz = Math.max(MIN_FREQUENCY_HZ, Math.min(hz * scale, maxHz));
+        }
+        BaseStatusSignal.setUpdateFrequencyForAll(hz, request.signals());
+        plannedRates.put(request, hz);
+        plannedLoad += hz * request.signals().length * frameSeconds;
+        System.out.printf(
+            "  %s x%d: %.0f Hz (requested %.0f Hz)%s%n",
+            request.signals()[0].getName(),
+            request.signals().length,
+            hz,
+            request.requestedHz(),
+            request.critical() ? ", critical" : "");
+      }
+
+      double requestedLoad = criticalLoad + flexibleLoad;
+      System.out.println(
+          "  Requested "
+              + percent(requestedLoad)
+              + ", planned "
+              + percent(plannedLoad)
+              + (plannedLoad > budget ? ", OVER BUDGET" : ""));
+      logBus(bus);
+    }
+
+    for (ParentDevice device : devicesToOptimize) {
+      device.optimizeBusUtilization();
+    }
+    devicesToOptimize.clear();
+    applied = true;
+  }
+
+  /**
+   * Changes the rate of critical signals after the plan is applied, for owners that adapt it to
+   * what the bus can sustain. Every critical request made up only of these signals records the new
+   * rate. Safe to call from any thread.
+   */
+  public static void setCriticalFrequency(
+      String bus, double frequencyHz, BaseStatusSignal... signals) {
+    String name = busName(bus);
+    synchronized (planLock) {
+      for (Request request : requestsByBus.getOrDefault(name, List.of())) {
+        if (request.critical() && containsAll(signals, request.signals())) {
+          plannedRates.put(request, frequencyHz);
+          changedBuses.add(name);
+        }
+      }
+    }
+    BaseStatusSignal.setUpdateFrequencyForAll(frequencyHz, signals);
+  }
+
+  /** Prints and logs buses whose critical rates changed since the last call, call once per loop. */
+  public static void periodic() {
+    synchronized (planLock) {
+      if (changedBuses.isEmpty()) {
+        return;
+      }
+      for (String bus : changedBuses) {
+        double plannedLoad = logBus(bus);
+        System.out.println(
+            "[CANBusPlanner] "
+                + bus
+                + " critical rates changed, planned "
+                + percent(plannedLoad)
+                + (plannedLoad > budgets.getOrDefault(bus, DEFAULT_BUDGET) ? ", OVER BUDGET" : ""));
+      }
+      changedBuses.clear();
+    }
+  }
+
+  // Logs a bus's utilization at its planned rates and returns the planned utilization
+  private static double logBus(String bus) {
+    double frameSeconds = bus.equals("rio") ? CAN_FRAME_SECONDS : CAN_FD_FRAME_SECONDS;
+    double requestedLoad = 0.0;
+    double plannedLoad = 0.0;
+    double criticalLoad = 0.0;
+    for (Request request : requestsByBus.get(bus)) {
+      double frames = request.signals().length * frameSeconds;
+      double plannedHz = plannedRates.get(request);
+      requestedLoad += request.requestedHz() * frames;
+      plannedLoad += plannedHz * frames;
+      if (request.critical()) {
+        criticalLoad += plannedHz * frames;
+      }
+    }
+    Logger.recordOutput("CANBus/" + bus + "/Budget", budgets.getOrDefault(bus, DEFAULT_BUDGET));
+    Logger.recordOutput("CANBus/" + bus + "/RequestedUtilization", requestedLoad);
+    Logger.recordOutput("CANBus/" + bus + "/PlannedUtilization", plannedLoad);
+    Logger.recordOutput("CANBus/" + bus + "/CriticalUtilization", criticalLoad);
+    return plannedLoad;
+  }
+
+  // Compares by identity, Phoenix hands out one signal object per device signal
+  private static boolean containsAll(BaseStatusSignal[] signals, BaseStatusSignal[] subset) {
+    for (BaseStatusSignal wanted : subset) {
+      boolean found = false;
+      for (BaseStatusSignal signal : signals) {
+        found |= signal == wanted;
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void addRequest(String bus, Request request) {
+    if (request.signals().length == 0) {
+      return;
+    }
+    if (applied) {
+      // Too late to plan around, just use the requested rate
+      BaseStatusSignal.setUpdateFrequencyForAll(request.requestedHz(), request.signals());
+      return;
+    }
+    requestsByBus.computeIfAbsent(busName(bus), key -> new ArrayList<>()).add(request);
+  }
+
+  private static String busName(String bus) {
+    return bus.isEmpty() ? "rio" : bus;
+  }
+
+  private static String percent(double fraction) {
+    return String.format("%.1f%%", fraction * 100.0);
+  }
+}
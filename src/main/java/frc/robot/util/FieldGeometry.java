@@ -0,0 +1,163 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.FieldConstants;
+import frc.robot.FieldConstants.Stage;
+import frc.robot.FieldConstants.StagingLocations;
+import frc.robot.FieldConstants.Subwoofer;
+import java.util.concurrent.atomic.AtomicReference;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * The field landmarks from {@link FieldConstants}, already flipped for our alliance.
+ *
+ * <p>Both versions are built once when the class loads, one as stored and one mirrored onto the red
+ * side. {@link #update()} checks the driver station once a loop and swaps which one {@link #get()}
+ * returns when the alliance changes, so code running every loop reads a cached pose instead of
+ * asking the driver station and building a new pose with {@link AllianceFlipUtil#apply}. The swap
+ * is an atomic reference, so a layout read from another thread is always one or the other, never
+ * half of each.
+ *
+ * <p>Nothing in a layout should be modified, the arrays included.
+ */
+public class FieldGeometry {
+  /** Robot y above which the speaker aim point moves to the left side of the opening. */
+  public static final double speakerAimLeftMinY = 6.25;
+  /** Robot y below which the speaker aim point moves to the right side of the opening. */
+  public static final double speakerAimRightMaxY = 4.75;
+
+  /**
+   * Every landmark for one alliance.
+   *
+   * @param flipped Whether this is the red alliance layout.
+   * @param speaker The middle of the speaker, facing the field.
+   * @param speakerAimLeft Speaker aim point for shots from the left side of the field.
+   * @param speakerAimMiddle Speaker aim point for shots from in front of it.
+   * @param speakerAimRight Speaker aim point for shots from the right side of the field.
+   * @param source The source, facing the field.
+   * @param amp The amp, facing the field.
+   * @param subwoofer The subwoofer amp corner, source corner and center face.
+   * @param stage The stage podium, amp and source legs, then its center.
+   * @param stageChains The centers of the podium-amp, amp-source and source-podium chains.
+   * @param centerlineNotes Note staging locations on the centerline.
+   * @param spikeNotes Note staging locations on the spikes.
+   */
+  public record Layout(
+      boolean flipped,
+      Pose2d speaker,
+      Translation2d speakerAimLeft,
+      Translation2d speakerAimMiddle,
+      Translation2d speakerAimRight,
+      Pose2d source,
+      Pose2d amp,
+      Pose2d[] subwoofer,
+      Pose2d[] stage,
+      Pose2d[] stageChains,
+      Translation2d[] centerlineNotes,
+      Translation2d[] spikeNotes) {
+
+    /** Returns the speaker aim point for a robot at the given field y. */
+    public Translation2d speakerAimPoint(double robotY) {
+      if (robotY > speakerAimLeftMinY) {
+        return speakerAimLeft;
+      } else if (robotY >= speakerAimRightMaxY) {
+        return speakerAimMiddle;
+      } else {
+        return speakerAimRight;
+      }
+    }
+
+    /** Returns how far a point is out from the alliance wall, toward the other alliance. */
+    public double distanceFromAllianceWall(double x) {
+      return flipped ? FieldConstants.fieldLength - x : x;
+    }
+  }
+
+  private static final Layout blue = build(false);
+  private static final Layout red = build(true);
+  private static final AtomicReference<Layout> current = new AtomicReference<>(blue);
+
+  private FieldGeometry() {}
+
+  /** Returns the layout for the current alliance, blue until the alliance is known. */
+  public static Layout get() {
+    return current.get();
+  }
+
+  /** Returns the layout for one alliance. */
+  public static Layout get(boolean flipped) {
+    return flipped ? red : blue;
+  }
+
+  /** Returns whether the current alliance is red. */
+  public static boolean isFlipped() {
+    return current.get().flipped();
+  }
+
+  /** Checks the alliance and swaps layouts if it changed, call once at the start of each loop. */
+  public static void update() {
+    Layout next = DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red ? red : blue;
+    if (current.getAndSet(next) != next) {
+      Logger.recordOutput("FieldGeometry/Flipped", next.flipped());
+    }
+  }
+
+  private static Layout build(boolean flipped) {
+    return new Layout(
+        flipped,
+        flip(FieldConstants.SpeakerPosition, flipped),
+        flip(new Translation2d(-0.2, Units.inchesToMeters(197.765)), flipped),
+        flip(new Translation2d(-0.2, (5 + 6.12) / 2), flipped),
+        flip(new Translation2d(-0.2, Units.inchesToMeters(238.815)), flipped),
+        flip(FieldConstants.sourcePose, flipped),
+        flip(FieldConstants.ampPose, flipped),
+        flip(
+            new Pose2d[] {
+              Subwoofer.ampFaceCorner, Subwoofer.sourceFaceCorner, Subwoofer.centerFace
+            },
+            flipped),
+        flip(new Pose2d[] {Stage.podiumLeg, Stage.ampLeg, Stage.sourceLeg, Stage.center}, flipped),
+        flip(
+            new Pose2d[] {
+              Stage.centerPodiumAmpChain, Stage.centerAmpSourceChain, Stage.centerSourcePodiumChain
+            },
+            flipped),
+        flip(StagingLocations.centerlineTranslations, flipped),
+        flip(StagingLocations.spikeTranslations, flipped));
+  }
+
+  private static Translation2d flip(Translation2d translation, boolean flipped) {
+    return flipped
+        ? new Translation2d(FieldConstants.fieldLength - translation.getX(), translation.getY())
+        : translation;
+  }
+
+  private static Pose2d flip(Pose2d pose, boolean flipped) {
+    return flipped
+        ? new Pose2d(
+            flip(pose.getTranslation(), true),
+            new Rotation2d(-pose.getRotation().getCos(), pose.getRotation().getSin()))
+        : pose;
+  }
+
+  private static Pose2d[] flip(Pose2d[] poses, boolean flipped) {
+    Pose2d[] flippedPoses = new Pose2d[poses.length];
+    for (int i = 0; i < poses.length; i++) {
+      flippedPoses[i] = flip(poses[i], flipped);
+    }
+    return flippedPoses;
+  }
+
+  private static Translation2d[] flip(Translation2d[] translations, boolean flipped) {
+    Translation2d[] flippedTranslations = new Translation2d[translations.length];
+    for (int i = 0; i < translations.length; i++) {
+      flippedTranslations[i] = flip(translations[i], flipped);
+    }
+    return flippedTranslations;
+  }
+}
@@ -0,0 +1,156 @@
+package frc.robot.util;
+
+/**
+ * Piecewise linear lookup table keyed on its first column.
+ *
+ * <p>Rows are {@code {key, value1, value2, ...}} with strictly increasing keys. Segment slopes are
+ * computed once when the table is loaded, so a lookup is one segment search plus a multiply-add per
+ * column. Evenly spaced keys are indexed directly; otherwise the segment is found with a binary
+ * search. Keys outside the table are extrapolated from the first or last segment.
+ */
+public class InterpolatingTable {
+  // Relative tolerance when deciding whether keys are evenly spaced
+  private static final double UNIFORM_TOLERANCE = 1e-9;
+
+  private final int columns;
+  private double[] keys;
+  private double[] values; // Row major, columns values per row
+  private double[] slopes; // Row major, columns slopes per segment
+  private boolean uniform;
+  private double inverseSpacing;
+
+  /**
+   * Creates a table.
+   *
+   * @param rows Rows of {@code {key, values...}}, at least two, all the same width.
+   * @throws IllegalArgumentException If the rows are malformed or the keys are not strictly
+   *     increasing.
+   */
+  public InterpolatingTable(double[][] rows) {
+    if (rows.length < 1 || rows[0].length < 2) {
+      throw new IllegalArgumentException("Table needs a key column and at least one value column");
+    }
+    columns = rows[0].length - 1;
+    reload(rows);
+  }
+
+  /**
+   * Replaces the contents of the table. The rows are validated before anything is swapped in, so a
+   * rejected reload leaves the previous table in use.
+   *
+   * @throws IllegalArgumentException If the rows are malformed or the keys are not strictly
+   *     increasing.
+   */
+  public void reload(double[][] rows) {
+    int count = rows.length;
+    if (count < 2) {
+      throw new IllegalArgumentException("Table needs at least two rows, got " + count);
+    }
+    double[] newKeys = new double[count];
+    double[] newValues = new double[count * columns];
+    for (int i = 0; i < count; i++) {
+      if (rows[i].length != columns + 1) {
+        throw new IllegalArgumentException(
+            "Row " + i + " has " + rows[i].length + " columns, expected " + (columns + 1));
+      }
+      newKeys[i] = rows[i][0];
+      if (!Double.isFinite(newKeys[i])) {
+        throw new IllegalArgumentException("Row " + i + " has a non-finite key");
+      }
+      if (i > 0 && newKeys[i] <= newKeys[i - 1]) {
+        throw new IllegalArgumentException(
+            "Keys must be strictly increasing, row " + i + " has key " + newKeys[i]);
+      }
+      System.arraycopy(rows[i], 1, newValues, i * columns, columns);
+    }
+
+    double[] newSlopes = new double[(count - 1) * columns];
+    for (int i = 0; i < count - 1; i++) {
+      double inverseWidth = 1.0 / (newKeys[i + 1] - newKeys[i]);
+      for (int j = 0; j < columns; j++) {
+        newSlopes[i * columns + j] =
+            (newValues[(i + 1) * columns + j] - newValues[i * columns + j]) * inverseWidth;
+      }
+    }
+
+    double spacing = (newKeys[count - 1] - newKeys[0]) / (count - 1);
+    boolean newUniform = true;
+    for (int i = 1; newUniform && i < count; i++) {
+      double expected = newKeys[0] + spacing * i;
+      newUniform = Math.abs(newKeys[i] - expected) <= UNIFORM_TOLERANCE * Math.abs(spacing) * count;
+    }
+
+    keys = newKeys;
+    values = newValues;
+    slopes = newSlopes;
+    uniform = newUniform;
+    inverseSpacing = 1.0 / spacing;
+  }
+
+  /** Returns the number of value columns, not counting the key. */
+  public int getColumnCount() {
+    return columns;
+  }
+
+  /**
+   * Looks up one column.
+   *
+   * @param column Column index in the source rows, so the first value column is 1.
+   */
+  public double get(double key, int column) {
+    if (column < 1 || column > columns) {
+      throw new IndexOutOfBoundsException("Column " + column + " is not a value column");
+    }
+    int segment = findSegment(key);
+    int index = segment * columns + column - 1;
+    return values[index] + slopes[index] * (key - keys[segment]);
+  }
+
+  /**
+   * Looks up every value column with a single segment search.
+   *
+   * @param out Receives the value columns in order, must have at least {@link #getColumnCount()}
+   *     entries.
+   */
+  public void getAll(double key, double[] out) {
+    int segment = findSegment(key);
+    int offset = segment * columns;
+    double dx = key - keys[segment];
+    for (int j = 0; j < columns; j++) {
+      out[j] = values[offset + j] + slopes[offset + j] * dx;
+    }
+  }
+
+  // Segment to interpolate on, clamped to the first and last segments for extrapolation
+  private int findSegment(double key) {
+    int last = keys.length - 2;
+    if (key <= keys[0]) {
+      return 0;
+    }
+    if (key >= keys[last]) {
+      return last;
+    }
+    if (uniform) {
+      // Rounding can put the key one segment off at a boundary, nudge it back
+      int segment = Math.min((int) ((key - keys[0]) * inverseSpacing), last);
+      if (segment > 0 && key < keys[segment]) {
+        segment--;
+      } else if (segment < last && key >= keys[segment + 1]) {
+        segment++;
+      }
+      return segment;
+    }
+    // Find the last key at or below the key
+    int low = 0;
+    int high = last;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (keys[mid] <= key) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
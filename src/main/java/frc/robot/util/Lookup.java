@@ -2,72 +2,45 @@ package frc.robot.util;
 
 import static frc.robot.Constants.ShooterConstants.shooterLUT;
 
-import edu.wpi.first.math.geometry.Rotation2d;
-
 public class Lookup {
-  // Remaps a value from the range l1 to r1 to a range l2 to r2
-  // e.g. map(5,0,10,10,20) returns 15
-  private static double map(double value, double l1, double r1, double l2, double r2) {
-    if (r1 - l1 == 0) {
-      return l1; // if these bounds are the same number, return that number (prevents divide by 0)
-    }
-    return (value - l1) * (r2 - l2) / (r1 - l1) + l2;
-  }
-
-  // returns the remapped value based on the which column in the lookup table (e.g. func(distance,
-  // 1), would return remapped velocity)
-  private static double getValueFromColumn(double distance, int column) {
-    // LookupTuner.updateMatrix(); // update the lookup table
-    int lowerIndex =
-        0; // the index of the value in the lookup table that is just greater than distance
-
-    // if the distance is below the lowest table distance, return a mapped value based on the least
-    // two table distances
-    if (distance <= shooterLUT[0][0]) {
-      return map(
-          distance,
-          shooterLUT[0][0],
-          shooterLUT[1][0],
-          shooterLUT[0][column],
-          shooterLUT[1][column]); // return mapped value based on the least two distances
+  // Column indices in the shooter lookup table
+  public static final int RPM_COLUMN = 1;
+  public static final int ANGLE_COLUMN = 2;
+  public static final int TIME_OF_FLIGHT_COLUMN = 3;
 
-      // if the distance is above the max table distance, return a mapped value based on the
-      // greatest two table distances
-    } else if (distance > shooterLUT[shooterLUT.length - 1][0]) {
-      return map(
-          distance,
-          shooterLUT[shooterLUT.length - 2][0],
-          shooterLUT[shooterLUT.length - 1][0],
-          shooterLUT[shooterLUT.length - 2][column],
-          shooterLUT[shooterLUT.length - 1][column]);
+  private static final InterpolatingTable shooterTable = new InterpolatingTable(shooterLUT);
 
-    } else {
-      while (distance > shooterLUT[lowerIndex][0]) {
-        lowerIndex++;
-        if (lowerIndex == shooterLUT.length) {
-          lowerIndex -= 2;
-          break;
-        }
-      }
-
-      if (lowerIndex == shooterLUT.length - 1) {
-        lowerIndex = shooterLUT.length - 2;
-      }
-      return map(
-          distance,
-          shooterLUT[lowerIndex][0],
-          shooterLUT[lowerIndex + 1][0],
-          shooterLUT[lowerIndex][column],
-          shooterLUT[lowerIndex + 1][column]);
-    }
-  }
   // returns appropriate RPM based on distance
   public static double getShooterRPM(double distance) {
-    return getValueFromColumn(distance, 1); // 1 is the index of RPM
+    return shooterTable.get(distance, RPM_COLUMN);
   }
-  // returns the proper angle based on distance
+
+  // returns the proper angle in radians based on distance
   public static double getWristAngle(double distance) {
-    return Rotation2d.fromDegrees(getValueFromColumn(distance, 2))
-        .getRadians(); // 1 is the index of angle
+    return Math.toRadians(shooterTable.get(distance, ANGLE_COLUMN));
+  }
+
+  // returns how long a note takes to reach the speaker, in seconds
+  public static double getTimeOfFlight(double distance) {
+    return shooterTable.get(distance, TIME_OF_FLIGHT_COLUMN);
+  }
+
+  /**
+   * Looks up every shooter column at once.
+   *
+   * @param out Receives the table columns after distance, so RPM, angle in degrees, then time of
+   *     flight in seconds.
+   */
+  public static void getShot(double distance, double[] out) {
+    shooterTable.getAll(distance, out);
+  }
+
+  /**
+   * Swaps in new shooter table rows, used by {@link LookupTuner}.
+   *
+   * @throws IllegalArgumentException If the distances are not strictly increasing.
+   */
+  public static void reload(double[][] rows) {
+    shooterTable.reload(rows);
   }
 }
@@ -1,34 +1,58 @@
-// package frc.robot.util;
+package frc.robot.util;
 
-// import static frc.robot.Constants.ShooterConstants.shooterLUT;
+import static frc.robot.Constants.ShooterConstants.shooterLUT;
 
-// public class LookupTuner {
-//   private static LoggedTunableNumber[][] lookupTable =
-//       new LoggedTunableNumber[shooterLUT.length][shooterLUT[0].length];
+import edu.wpi.first.wpilibj.DriverStation;
 
-//   public static void setupTuner() {
-//     for (int i = 0; i < shooterLUT.length; i++) {
-//       for (int j = 1; j < shooterLUT[i].length; j++) {
-//         System.out.print(shooterLUT[i][j] + " ");
-//         String text = j == 1 ? "RPM" : "Angle";
-//         lookupTable[i][j] =
-//             new LoggedTunableNumber(
-//                 "shooterLUT/" + "Meters-" + shooterLUT[i][0] + "/" + text, shooterLUT[i][j]);
-//       }
-//     }
-//   }
+/** Exposes the shooter lookup table as tunable numbers and reloads it when any of them change. */
+public class LookupTuner {
+  private static LoggedTunableNumber[][] lookupTable = null;
 
-//   public static double getMatrixValue(int i, int j) {
-//     return lookupTable[i][j].get();
-//   }
+  public static void setupTuner() {
+    lookupTable = new LoggedTunableNumber[shooterLUT.length][shooterLUT[0].length];
+    for (int i = 0; i < shooterLUT.length; i++) {
+      for (int j = 1; j < shooterLUT[i].length; j++) {
+        String text =
+            j == Lookup.RPM_COLUMN ? "RPM" : j == Lookup.ANGLE_COLUMN ? "Angle" : "TimeOfFlight";
+        lookupTable[i][j] =
+            new LoggedTunableNumber(
+                "shooterLUT/" + "Meters-" + shooterLUT[i][0] + "/" + text, shooterLUT[i][j]);
+      }
+    }
+  }
 
-//   public static void updateMatrix() {
-//     for (int i = 0; i < shooterLUT.length; i++) {
-//       for (int j = 1; j < shooterLUT[i].length; j++) {
-//         if (lookupTable[i][j].get() != shooterLUT[i][j]) {
-//           shooterLUT[i][j] = lookupTable[i][j].get();
-//         }
-//       }
-//     }
-//   }
-// }
+  public static double getMatrixValue(int i, int j) {
+    return lookupTable[i][j].get();
+  }
+
+  /** Reloads the lookup table if any tuned value changed. Call once per loop. */
+  public static void updateMatrix() {
+    if (lookupTable == null) {
+      return;
+    }
+    // Check every number so each one records its latest value
+    boolean changed = false;
+    for (int i = 0; i < lookupTable.length; i++) {
+      for (int j = 1; j < lookupTable[i].length; j++) {
+        changed |= lookupTable[i][j].hasChanged(LookupTuner.class.hashCode());
+      }
+    }
+    if (!changed) {
+      return;
+    }
+
+    double[][] rows = new double[shooterLUT.length][];
+    for (int i = 0; i < shooterLUT.length; i++) {
+      rows[i] = new double[shooterLUT[i].length];
+      rows[i][0] = shooterLUT[i][0];
+      for (int j = 1; j < shooterLUT[i].length; j++) {
+        rows[i][j] = lookupTable[i][j].get();
+      }
+    }
+    try {
+      Lookup.reload(rows);
+    } catch (IllegalArgumentException e) {
+      DriverStation.reportWarning("Rejected tuned shooter table: " + e.getMessage(), false);
+    }
+  }
+}
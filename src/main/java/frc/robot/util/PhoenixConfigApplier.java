@@ -0,0 +1,236 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.SoftwareLimitSwitchConfigs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import com.ctre.phoenix6.hardware.TalonFX;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Applies Phoenix 6 configs off the main thread.
+ *
+ * <p>Each apply blocks until the device acknowledges it, which takes several milliseconds per
+ * device and far longer when a device is missing. Here the config is serialized when it is
+ * submitted and applied on a worker thread, retrying a few times if it fails. Applies to one device
+ * run in the order they were submitted, and different devices are configured in parallel.
+ *
+ * <p>A config that is identical to the last one submitted for the same device is skipped, so gains
+ * can be pushed every time a tunable number changes without resending the ones that didn't. A full
+ * device configuration resets what is known about that device's partial configs.
+ *
+ * <p>Submit configs and call {@link #periodic()} from the main thread only.
+ */
+public class PhoenixConfigApplier {
+  private static final int MAX_ATTEMPTS = 5;
+  private static final double APPLY_TIMEOUT_SECONDS = 0.25;
+  // Workers spend nearly all their time waiting on the CAN bus, not computing
+  private static final int WORKER_THREADS = 4;
+  private static final String FULL_CONFIG = "Full";
+
+  private static PhoenixConfigApplier instance = null;
+
+  private final ExecutorService executor;
+  // Device key -> config kind -> last serialized config submitted, removed if it failed to apply
+  private final Map<String, Map<String, String>> submittedConfigs = new HashMap<>();
+  // Device key -> the last apply queued for that device
+  private final Map<String, CompletableFuture<Void>> deviceQueues = new HashMap<>();
+
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicLong appliedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong retryCount = new AtomicLong();
+  private final AtomicLong lastLatencyNanos = new AtomicLong();
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+  private long skippedCount = 0;
+
+  public static synchronized PhoenixConfigApplier getInstance() {
+    if (instance == null) {
+      instance = new PhoenixConfigApplier();
+    }
+    return instance;
+  }
+
+  private PhoenixConfigApplier() {
+    AtomicInteger threadCount = new AtomicInteger();
+    executor =
+        Executors.newFixedThreadPool(
+            WORKER_THREADS,
+            runnable -> {
+              Thread thread = new Thread(runnable, "PhoenixConfig" + threadCount.getAndIncrement());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Applies a full configuration, replacing everything previously applied to the motor. */
+  public void apply(TalonFX talon, TalonFXConfiguration config) {
+    submit(
+        talon,
+        FULL_CONFIG,
+        config.serialize(),
+        serialized -> {
+          var copy = new TalonFXConfiguration();
+          copy.deserialize(serialized);
+          return talon.getConfigurator().apply(copy, APPLY_TIMEOUT_SECONDS);
+        });
+  }
+
+  /** Applies slot 0 gains. */
+  public void apply(TalonFX talon, Slot0Configs config) {
+    submit(
+        talon,
+        "Slot0",
+        config.serialize(),
+        serialized -> {
+          var copy = new Slot0Configs();
+          copy.deserialize(serialized);
+          return talon.getConfigurator().apply(copy, APPLY_TIMEOUT_SECONDS);
+        });
+  }
+
+  /**
+   * Applies motor output settings. Neutral mode changes go through here, so they land in order
+   * with the full configuration instead of racing it.
+   */
+  public void apply(TalonFX talon, MotorOutputConfigs config) {
+    submit(
+        talon,
+        "MotorOutput",
+        config.serialize(),
+        serialized -> {
+          var copy = new MotorOutputConfigs();
+          copy.deserialize(serialized);
+          return talon.getConfigurator().apply(copy, APPLY_TIMEOUT_SECONDS);
+        });
+  }
+
+  /** Applies soft limits. */
+  public void apply(TalonFX talon, SoftwareLimitSwitchConfigs config) {
+    submit(
+        talon,
+        "SoftwareLimitSwitch",
+        config.serialize(),
+        serialized -> {
+          var copy = new SoftwareLimitSwitchConfigs();
+          copy.deserialize(serialized);
+          return talon.getConfigurator().apply(copy, APPLY_TIMEOUT_SECONDS);
+        });
+  }
+
+  /** Applies a full configuration, replacing everything previously applied to the encoder. */
+  public void apply(CANcoder cancoder, CANcoderConfiguration config) {
+    submit(
+        cancoder,
+        FULL_CONFIG,
+        config.serialize(),
+        serialized -> {
+          var copy = new CANcoderConfiguration();
+          copy.deserialize(serialized);
+          return cancoder.getConfigurator().apply(copy, APPLY_TIMEOUT_SECONDS);
+        });
+  }
+
+  /**
+   * Blocks until every submitted config has been applied or has failed. Used once after the
+   * devices are constructed so their configs go out in parallel but nothing runs on a half
+   * configured device.
+   *
+   * @return False if applies were still pending when the timeout ran out or the wait was
+   *     interrupted.
+   */
+  public boolean awaitIdle(double timeoutSeconds) {
+    CompletableFuture<?> all =
+        CompletableFuture.allOf(deviceQueues.values().toArray(new CompletableFuture<?>[0]));
+    try {
+      all.get((long) (timeoutSeconds * 1e9), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException | TimeoutException e) {
+      DriverStation.reportWarning(
+          "[PhoenixConfig] " + pendingCount.get() + " configs still pending after waiting", false);
+      return false;
+    }
+  }
+
+  /** Logs apply statistics, call once per loop. */
+  public void periodic() {
+    Logger.recordOutput("PhoenixConfig/Pending", pendingCount.get());
+    Logger.recordOutput("PhoenixConfig/Applied", appliedCount.get());
+    Logger.recordOutput("PhoenixConfig/Skipped", skippedCount);
+    Logger.recordOutput("PhoenixConfig/Failed", failedCount.get());
+    Logger.recordOutput("PhoenixConfig/Retries", retryCount.get());
+    Logger.recordOutput("PhoenixConfig/LastLatencyMs", lastLatencyNanos.get() / 1e6);
+    Logger.recordOutput("PhoenixConfig/MaxLatencyMs", maxLatencyNanos.get() / 1e6);
+  }
+
+  private void submit(
+      ParentDevice device,
+      String kind,
+      String serialized,
+      Function<String, StatusCode> applyFunction) {
+    String deviceKey =
+        device.getClass().getSimpleName() + " " + device.getDeviceID() + " " + device.getNetwork();
+    Map<String, String> deviceConfigs =
+        submittedConfigs.computeIfAbsent(deviceKey, key -> new ConcurrentHashMap<>());
+    if (serialized.equals(deviceConfigs.get(kind))) {
+      skippedCount++;
+      return;
+    }
+    if (kind.equals(FULL_CONFIG)) {
+      // Every partial config is part of the full one, so they are all overwritten
+      deviceConfigs.clear();
+    }
+    deviceConfigs.put(kind, serialized);
+
+    pendingCount.incrementAndGet();
+    CompletableFuture<Void> previous =
+        deviceQueues.getOrDefault(deviceKey, CompletableFuture.completedFuture(null));
+    deviceQueues.put(
+        deviceKey,
+        previous.thenRunAsync(
+            () -> {
+              long startNanos = System.nanoTime();
+              StatusCode status = applyFunction.apply(serialized);
+              for (int attempt = 1; attempt < MAX_ATTEMPTS && !status.isOK(); attempt++) {
+                retryCount.incrementAndGet();
+                status = applyFunction.apply(serialized);
+              }
+              long latencyNanos = System.nanoTime() - startNanos;
+              lastLatencyNanos.set(latencyNanos);
+              maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+              if (status.isOK()) {
+                appliedCount.incrementAndGet();
+              } else {
+                failedCount.incrementAndGet();
+                // Forget it so the same config is sent again next time it is submitted
+                deviceConfigs.remove(kind, serialized);
+                DriverStation.reportWarning(
+                    "[PhoenixConfig] Failed to apply " + kind + " config to " + deviceKey + ": "
+                        + status.getName(),
+                    false);
+              }
+              pendingCount.decrementAndGet();
+            },
+            executor));
+  }
+}
@@ -0,0 +1,86 @@
+package frc.robot.util;
+
+import org.littletonrobotics.junction.LogReplaySource;
+import org.littletonrobotics.junction.LogTable;
+
+/**
+ * Replays only part of a log and reports how fast the replay ran.
+ *
+ * <p>Cycles before the start time are read into the table without running robot code, so the first
+ * replayed cycle begins from the logged state at that time. Replay ends at the first cycle after
+ * the end time. When replay ends the number of cycles and loops per second are printed.
+ */
+public class RangedReplaySource implements LogReplaySource {
+  public static final String START_ENV = "REPLAY_START_SECONDS";
+  public static final String END_ENV = "REPLAY_END_SECONDS";
+
+  private final LogReplaySource source;
+  private final long startMicros;
+  private final long endMicros;
+
+  private long startNanos = 0;
+  private long cycles = 0;
+  private long skippedCycles = 0;
+
+  /**
+   * @param startSeconds Log time to start running robot code at.
+   * @param endSeconds Log time to stop at, infinity for the whole log.
+   */
+  public RangedReplaySource(LogReplaySource source, double startSeconds, double endSeconds) {
+    this.source = source;
+    startMicros = (long) (startSeconds * 1e6);
+    endMicros = Double.isInfinite(endSeconds) ? Long.MAX_VALUE : (long) (endSeconds * 1e6);
+  }
+
+  /** Reads the range from the {@link #START_ENV} and {@link #END_ENV} environment variables. */
+  public static RangedReplaySource fromEnvironment(LogReplaySource source) {
+    return new RangedReplaySource(
+        source,
+        readSeconds(START_ENV, 0.0),
+        readSeconds(END_ENV, Double.POSITIVE_INFINITY));
+  }
+
+  @Override
+  public void start() {
+    source.start();
+    startNanos = System.nanoTime();
+  }
+
+  @Override
+  public boolean updateTable(LogTable table) {
+    while (source.updateTable(table)) {
+      long timestamp = table.getTimestamp();
+      if (timestamp > endMicros) {
+        return false;
+      }
+      if (timestamp >= startMicros) {
+        cycles++;
+        return true;
+      }
+      skippedCycles++;
+    }
+    return false;
+  }
+
+  @Override
+  public void end() {
+    source.end();
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.printf(
+        "[Replay] %d cycles in %.2f s (%.0f loops/sec), %d cycles skipped before start%n",
+        cycles, seconds, cycles / Math.max(seconds, 1e-9), skippedCycles);
+  }
+
+  private static double readSeconds(String name, double defaultValue) {
+    String value = System.getenv(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      System.err.println("[Replay] Ignoring " + name + ", not a number: " + value);
+      return defaultValue;
+    }
+  }
+}
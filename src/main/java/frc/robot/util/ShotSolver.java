@@ -0,0 +1,116 @@
+package frc.robot.util;
+
+import static frc.robot.Constants.ShooterConstants.*;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.commands.HeadingController;
+import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.DriveState;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Aims shots at the speaker while the robot is moving.
+ *
+ * <p>A note leaves with the robot's velocity, so it lands where it was aimed shifted by that
+ * velocity times its time of flight. The solver aims at a virtual target, the speaker shifted the
+ * other way, and iterates: the distance to the virtual target gives a time of flight from the
+ * shooter table, which moves the virtual target, until it stops moving by more than {@link
+ * frc.robot.Constants.ShooterConstants#shotSolverToleranceMeters}. The robot's position is
+ * projected {@link frc.robot.Constants.ShooterConstants#shotLookaheadSecs} ahead first, for the
+ * time it takes the pose to be used.
+ *
+ * <p>The heading, wrist angle and flywheel speed all come from the same solution, worked out once
+ * per {@link DriveState} and cached by its generation, so every command aiming during a loop
+ * agrees. Only used from the main robot thread.
+ */
+public class ShotSolver {
+  /**
+   * A solved shot.
+   *
+   * @param generation The drive state generation this was solved from.
+   * @param virtualTarget Field position to aim at.
+   * @param distanceMeters Distance from the shooter to the virtual target.
+   * @param heading Field relative robot heading that points the shooter at the virtual target.
+   * @param headingVelocityRadPerSec How fast that heading is turning at the current velocity.
+   * @param wristAngleRad Wrist setpoint from the shooter table.
+   * @param flywheelRPS Flywheel setpoint from the shooter table.
+   * @param timeOfFlightSecs Time from leaving the shooter to reaching the target.
+   * @param converged Whether the virtual target settled within the iteration limit.
+   */
+  public record Solution(
+      long generation,
+      Translation2d virtualTarget,
+      double distanceMeters,
+      Rotation2d heading,
+      double headingVelocityRadPerSec,
+      double wristAngleRad,
+      double flywheelRPS,
+      double timeOfFlightSecs,
+      boolean converged) {}
+
+  private final Drive drive;
+  private final double[] shot = new double[3];
+  private Solution solution = null;
+
+  public ShotSolver(Drive drive) {
+    this.drive = drive;
+  }
+
+  /** Returns the solution for the drive's current state, solving only if it changed. */
+  public Solution get() {
+    DriveState state = drive.getState();
+    if (solution == null || solution.generation() != state.generation()) {
+      solution = solve(state);
+    }
+    return solution;
+  }
+
+  private Solution solve(DriveState state) {
+    Translation2d target = FieldGeometry.get().speakerAimPoint(state.pose().getY());
+    ChassisSpeeds velocity = state.velocity();
+    double vx = velocity.vxMetersPerSecond;
+    double vy = velocity.vyMetersPerSecond;
+    double robotX = state.pose().getX() + vx * shotLookaheadSecs;
+    double robotY = state.pose().getY() + vy * shotLookaheadSecs;
+
+    double targetX = target.getX();
+    double targetY = target.getY();
+    double dx = targetX - robotX;
+    double dy = targetY - robotY;
+    double distance = Math.hypot(dx, dy);
+    double timeOfFlight = 0.0;
+    boolean converged = false;
+    for (int i = 0; i < shotSolverMaxIterations && !converged; i++) {
+      timeOfFlight = Lookup.getTimeOfFlight(distance);
+      double newDx = targetX - vx * timeOfFlight - robotX;
+      double newDy = targetY - vy * timeOfFlight - robotY;
+      converged = Math.hypot(newDx - dx, newDy - dy) < shotSolverToleranceMeters;
+      dx = newDx;
+      dy = newDy;
+      distance = Math.hypot(dx, dy);
+    }
+
+    Lookup.getShot(distance, shot);
+    double flywheelRPS = shot[Lookup.RPM_COLUMN - 1];
+    Solution newSolution =
+        new Solution(
+            state.generation(),
+            new Translation2d(robotX + dx, robotY + dy),
+            distance,
+            new Rotation2d(dx, dy),
+            HeadingController.bearingRate(dx, dy, vx, vy),
+            Math.toRadians(shot[Lookup.ANGLE_COLUMN - 1]),
+            flywheelRPS > 0.0 ? flywheelRPS : defaultShotRPS,
+            timeOfFlight,
+            converged);
+
+    Logger.recordOutput("ShotSolver/VirtualTarget", newSolution.virtualTarget());
+    Logger.recordOutput("ShotSolver/DistanceMeters", distance);
+    Logger.recordOutput("ShotSolver/Heading", newSolution.heading());
+    Logger.recordOutput("ShotSolver/TimeOfFlightSecs", timeOfFlight);
+    Logger.recordOutput("ShotSolver/Converged", converged);
+    return newSolution;
+  }
+}
@@ -0,0 +1,243 @@
+package frc.robot.util;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Runs the simulated robot headless through a scripted match, as fast as the code allows, and
+ * writes a summary of the run.
+ *
+ * <p>Turned on by setting the SIM_HARNESS environment variable in simulation. The robot then stops
+ * waiting on the wall clock. HAL time is paused and stepped one loop period at the end of every
+ * {@code robotPeriodic}, so physics, commands and the logger all see exactly the same timestamps on
+ * every run no matter how fast the machine is. The harness drives the simulated driver station: it
+ * stays disabled for {@link #DISABLED_SECONDS}, runs autonomous for {@link #AUTO_SECONDS}, then
+ * teleop for SIM_HARNESS_TELEOP_SECONDS (default 0) before writing the summary and exiting.
+ *
+ * <p>Sim models draw their randomness from {@link #getRandom()}, seeded from SIM_HARNESS_SEED, so
+ * two runs with the same seed are identical. The summary is a JSON file at SIM_HARNESS_OUTPUT
+ * (default "build/sim-harness/run-[seed].json") with the wall clock time of each loop, when the
+ * autonomous command finished, and where the robot ended up. Each run is its own process with its
+ * NetworkTables server stopped, so any number can run side by side, e.g.
+ *
+ * <pre><code>
+ * SIM_HARNESS=1 SIM_HARNESS_SEED=4 SIM_HARNESS_OUTPUT=runs/4.json ./gradlew simulateJava
+ * </code></pre>
+ *
+ * <p>The sim GUI takes over the driver station, so it has to be left out of harness runs. Like the
+ * {@link Tracer}, this is only used from the main robot thread.
+ */
+public class SimHarness {
+  public static final double PERIOD_SECS = 0.02;
+  public static final double DISABLED_SECONDS = 1.0;
+  public static final double AUTO_SECONDS = 15.0;
+
+  private static final boolean enabled =
+      RobotBase.isSimulation() && System.getenv("SIM_HARNESS") != null;
+  private static final long seed =
+      parseLong(System.getenv("SIM_HARNESS_SEED"), enabled ? 0 : System.nanoTime());
+  private static final Random random = new Random(seed);
+
+  private enum Phase {
+    DISABLED,
+    AUTONOMOUS,
+    TELEOP
+  }
+
+  private static Phase phase = Phase.DISABLED;
+  private static int phaseCycles = 0;
+  private static int cycles = 0;
+  private static int autoCycles;
+  private static int teleopCycles;
+  private static long[] cycleNanos = new long[0];
+  private static long startNanos = 0;
+  private static long lastCycleNanos = 0;
+  private static double autoCompletionSeconds = Double.NaN;
+  private static BooleanSupplier autoRunning;
+  private static Supplier<String> autoName;
+  private static Supplier<Pose2d> pose;
+
+  private SimHarness() {}
+
+  /** Returns whether this run is driven by the harness. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns the seed for this run, fixed by SIM_HARNESS_SEED or random outside the harness. */
+  public static long getSeed() {
+    return seed;
+  }
+
+  /** Returns the random number generator sim models should use so harness runs repeat. */
+  public static Random getRandom() {
+    return random;
+  }
+
+  /**
+   * Pauses HAL time and connects the simulated driver station, disabled. Call at the end of {@code
+   * robotInit}, after turning off loop timing.
+   *
+   * @param autoRunning Whether the autonomous command is still scheduled.
+   * @param autoName The name of the autonomous command that will run.
+   * @param pose The robot's estimated pose, recorded at the end of the run.
+   */
+  public static void start(
+      BooleanSupplier autoRunning, Supplier<String> autoName, Supplier<Pose2d> pose) {
+    SimHarness.autoRunning = autoRunning;
+    SimHarness.autoName = autoName;
+    SimHarness.pose = pose;
+    autoCycles = cyclesFor(AUTO_SECONDS);
+    teleopCycles = cyclesFor(parseDouble(System.getenv("SIM_HARNESS_TELEOP_SECONDS"), 0.0));
+    cycleNanos = new long[cyclesFor(DISABLED_SECONDS) + autoCycles + teleopCycles];
+
+    // Other runs may be going at the same time, none of them need a server
+    NetworkTableInstance.getDefault().stopServer();
+    SimHooks.pauseTiming();
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.setAutonomous(false);
+    DriverStationSim.notifyNewData();
+    startNanos = System.nanoTime();
+    System.out.println("[SimHarness] Seed " + seed);
+  }
+
+  /** Records the loop, moves the match along and steps HAL time, call at the end of each loop. */
+  public static void step() {
+    long now = System.nanoTime();
+    cycleNanos[cycles++] = now - (lastCycleNanos == 0 ? startNanos : lastCycleNanos);
+    lastCycleNanos = now;
+    phaseCycles++;
+
+    switch (phase) {
+      case DISABLED:
+        if (phaseCycles >= cyclesFor(DISABLED_SECONDS)) {
+          enterPhase(Phase.AUTONOMOUS, true, true);
+        }
+        break;
+      case AUTONOMOUS:
+        // autonomousInit runs the loop after the mode changes, give the command a cycle to start
+        if (Double.isNaN(autoCompletionSeconds)
+            && phaseCycles > 1
+            && !autoRunning.getAsBoolean()) {
+          autoCompletionSeconds = (phaseCycles - 1) * PERIOD_SECS;
+        }
+        if (phaseCycles >= autoCycles) {
+          if (teleopCycles > 0) {
+            enterPhase(Phase.TELEOP, true, false);
+          } else {
+            finish();
+          }
+        }
+        break;
+      case TELEOP:
+        if (phaseCycles >= teleopCycles) {
+          finish();
+        }
+        break;
+    }
+    SimHooks.stepTiming(PERIOD_SECS);
+  }
+
+  private static void enterPhase(Phase newPhase, boolean enable, boolean autonomous) {
+    phase = newPhase;
+    phaseCycles = 0;
+    DriverStationSim.setEnabled(enable);
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.notifyNewData();
+  }
+
+  private static void finish() {
+    double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+    double simSeconds = cycles * PERIOD_SECS;
+    long[] sorted = Arrays.copyOf(cycleNanos, cycles);
+    Arrays.sort(sorted);
+    long total = 0;
+    for (long nanos : sorted) {
+      total += nanos;
+    }
+    Pose2d finalPose = pose.get();
+    String json =
+        String.format(
+            Locale.ROOT,
+            "{%n"
+                + "  \"seed\": %d,%n"
+                + "  \"cycles\": %d,%n"
+                + "  \"simSeconds\": %.3f,%n"
+                + "  \"wallSeconds\": %.3f,%n"
+                + "  \"realTimeFactor\": %.2f,%n"
+                + "  \"meanCycleMs\": %.4f,%n"
+                + "  \"p50CycleMs\": %.4f,%n"
+                + "  \"p99CycleMs\": %.4f,%n"
+                + "  \"maxCycleMs\": %.4f,%n"
+                + "  \"auto\": \"%s\",%n"
+                + "  \"autoCompletionSeconds\": %s,%n"
+                + "  \"finalPose\": {\"x\": %.4f, \"y\": %.4f, \"degrees\": %.3f}%n"
+                + "}%n",
+            seed,
+            cycles,
+            simSeconds,
+            wallSeconds,
+            simSeconds / wallSeconds,
+            total / 1e6 / cycles,
+            percentile(sorted, 0.5) / 1e6,
+            percentile(sorted, 0.99) / 1e6,
+            sorted[cycles - 1] / 1e6,
+            autoName.get().replace("\\", "\\\\").replace("\"", "\\\""),
+            Double.isNaN(autoCompletionSeconds)
+                ? "null"
+                : String.format(Locale.ROOT, "%.2f", autoCompletionSeconds),
+            finalPose.getX(),
+            finalPose.getY(),
+            finalPose.getRotation().getDegrees());
+
+    Path output =
+        Path.of(
+            System.getenv()
+                .getOrDefault("SIM_HARNESS_OUTPUT", "build/sim-harness/run-" + seed + ".json"));
+    int status = 0;
+    try {
+      if (output.getParent() != null) {
+        Files.createDirectories(output.getParent());
+      }
+      Files.writeString(output, json);
+      System.out.println("[SimHarness] Wrote " + output.toAbsolutePath());
+    } catch (IOException e) {
+      e.printStackTrace();
+      status = 1;
+    }
+    System.out.print(json);
+    Logger.end();
+    System.exit(status);
+  }
+
+  private static long percentile(long[] sorted, double fraction) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.floor(fraction * sorted.length))];
+  }
+
+  private static int cyclesFor(double seconds) {
+    return (int) Math.round(seconds / PERIOD_SECS);
+  }
+
+  private static long parseLong(String value, long fallback) {
+    return value == null ? fallback : Long.parseLong(value.trim());
+  }
+
+  private static double parseDouble(String value, double fallback) {
+    return value == null ? fallback : Double.parseDouble(value.trim());
+  }
+}
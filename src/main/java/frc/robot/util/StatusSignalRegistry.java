@@ -0,0 +1,60 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import java.util.Arrays;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Refreshes every registered Phoenix status signal once per loop, one batched call per CAN bus.
+ *
+ * <p>IOs register their signals in their constructors and read the cached values in {@code
+ * updateInputs} instead of each refreshing its own. {@link #refreshAll()} runs at the start of
+ * {@code robotPeriodic}, before any subsystem, so every subsystem sees values from the same
+ * instant. A refresh only reads the latest frames the driver has received, it does not wait on the
+ * bus. Check a signal's own {@link BaseStatusSignal#getStatus()} to tell whether its device is
+ * responding.
+ *
+ * <p>Signals on different buses can't be refreshed together, so each bus gets its own batch. Like
+ * the {@link Tracer}, this is only used from the main robot thread.
+ */
+public class StatusSignalRegistry {
+  private static final String RIO_BUS = "rio";
+
+  private static String[] buses = new String[0];
+  private static String[] statusLogKeys = new String[0];
+  private static BaseStatusSignal[][] signalsByBus = new BaseStatusSignal[0][];
+
+  private StatusSignalRegistry() {}
+
+  /**
+   * Adds signals to be refreshed every loop.
+   *
+   * @param bus The CAN bus the signals' device is on, "rio" or "" for the roboRIO's own bus.
+   */
+  public static void register(String bus, BaseStatusSignal... signals) {
+    String busName = bus.isEmpty() ? RIO_BUS : bus;
+    int index = Arrays.asList(buses).indexOf(busName);
+    if (index < 0) {
+      index = buses.length;
+      buses = Arrays.copyOf(buses, index + 1);
+      statusLogKeys = Arrays.copyOf(statusLogKeys, index + 1);
+      signalsByBus = Arrays.copyOf(signalsByBus, index + 1);
+      buses[index] = busName;
+      statusLogKeys[index] = "CANBus/" + busName + "/RefreshStatus";
+      signalsByBus[index] = new BaseStatusSignal[0];
+    }
+    BaseStatusSignal[] existing = signalsByBus[index];
+    BaseStatusSignal[] combined = Arrays.copyOf(existing, existing.length + signals.length);
+    System.arraycopy(signals, 0, combined, existing.length, signals.length);
+    signalsByBus[index] = combined;
+  }
+
+  /** Refreshes every registered signal, call once at the start of each loop. */
+  public static void refreshAll() {
+    for (int i = 0; i < buses.length; i++) {
+      StatusCode status = BaseStatusSignal.refreshAll(signalsByBus[i]);
+      Logger.recordOutput(statusLogKeys[i], status.getName());
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.controls.ControlRequest;
+import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.NeutralOut;
+import com.ctre.phoenix6.controls.PositionVoltage;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+/**
+ * Drives one TalonFX from a fixed set of reused control requests, and only calls {@link
+ * TalonFX#setControl} when the output changes.
+ *
+ * <p>Phoenix keeps resending the last request at the request's update rate on its own, so calling
+ * it again every loop with the same setpoint adds nothing on the bus. Commands that run every loop
+ * can call these methods freely: an unchanged setpoint is a few comparisons, with no allocation and
+ * no JNI call. Each request type has one instance per motor, mutated with its {@code with}
+ * methods, the same way {@code ModuleIOTalonFX} holds its requests.
+ *
+ * <p>Call {@link #invalidate()} after controlling the motor some other way, so the next setpoint is
+ * sent even if it matches the last one. Like the IOs that own it, this is only used from the main
+ * robot thread.
+ */
+public class TalonFXOutput {
+  private final TalonFX motor;
+
+  private final VoltageOut voltageOut = new VoltageOut(0.0);
+  private final DutyCycleOut dutyCycleOut = new DutyCycleOut(0.0);
+  private final VelocityVoltage velocityVoltage = new VelocityVoltage(0.0).withSlot(0);
+  private final PositionVoltage positionVoltage = new PositionVoltage(0.0).withSlot(0);
+  private final MotionMagicVoltage motionMagicVoltage = new MotionMagicVoltage(0.0);
+  private final NeutralOut neutralOut = new NeutralOut();
+
+  // What was last sent, a null request means the next call always sends
+  private ControlRequest lastRequest = null;
+  private double lastValue = 0.0;
+  private double lastAux = 0.0;
+  private int lastSlot = 0;
+
+  public TalonFXOutput(TalonFX motor) {
+    this.motor = motor;
+  }
+
+  /** Runs open loop at the given voltage. */
+  public void setVoltage(double volts) {
+    if (changed(voltageOut, volts, 0.0, 0)) {
+      send(voltageOut.withOutput(volts));
+    }
+  }
+
+  /** Runs open loop at the given fraction of the supply voltage, like {@link TalonFX#set}. */
+  public void setDutyCycle(double output) {
+    if (changed(dutyCycleOut, output, 0.0, 0)) {
+      send(dutyCycleOut.withOutput(output));
+    }
+  }
+
+  /** Runs the slot 0 velocity loop at the given mechanism rotations per second. */
+  public void setVelocity(double rotationsPerSecond) {
+    if (changed(velocityVoltage, rotationsPerSecond, 0.0, 0)) {
+      send(velocityVoltage.withVelocity(rotationsPerSecond));
+    }
+  }
+
+  /** Runs the slot 0 position loop to the given mechanism rotations. */
+  public void setPosition(double rotations) {
+    setPosition(rotations, 0.0);
+  }
+
+  /**
+   * Runs the slot 0 position loop to the given mechanism rotations, with a velocity feedforward.
+   */
+  public void setPosition(double rotations, double rotationsPerSecond) {
+    if (changed(positionVoltage, rotations, rotationsPerSecond, 0)) {
+      send(positionVoltage.withPosition(rotations).withVelocity(rotationsPerSecond));
+    }
+  }
+
+  /** Runs a Motion Magic profile to the given mechanism rotations. */
+  public void setMotionMagic(double rotations, int slot, double feedforwardVolts) {
+    if (changed(motionMagicVoltage, rotations, feedforwardVolts, slot)) {
+      send(
+          motionMagicVoltage
+              .withPosition(rotations)
+              .withSlot(slot)
+              .withFeedForward(feedforwardVolts));
+    }
+  }
+
+  /** Lets the motor coast or brake, depending on its neutral mode. */
+  public void stop() {
+    if (changed(neutralOut, 0.0, 0.0, 0)) {
+      send(neutralOut);
+    }
+  }
+
+  /** Forgets the last setpoint, so the next one is sent even if it matches. */
+  public void invalidate() {
+    lastRequest = null;
+  }
+
+  private boolean changed(ControlRequest request, double value, double aux, int slot) {
+    if (request == lastRequest && value == lastValue && aux == lastAux && slot == lastSlot) {
+      return false;
+    }
+    lastRequest = request;
+    lastValue = value;
+    lastAux = aux;
+    lastSlot = slot;
+    return true;
+  }
+
+  private void send(ControlRequest request) {
+    motor.setControl(request);
+  }
+}
@@ -1,229 +1,280 @@
-// package frc.robot.util;
-
-// import edu.wpi.first.networktables.DoublePublisher;
-// import edu.wpi.first.networktables.NetworkTable;
-// import edu.wpi.first.networktables.NetworkTableInstance;
-// import edu.wpi.first.wpilibj.DriverStation;
-// import java.lang.management.GarbageCollectorMXBean;
-// import java.lang.management.ManagementFactory;
-// import java.util.ArrayList;
-// import java.util.HashMap;
-// import java.util.function.Supplier;
-// import org.littletonrobotics.junction.Logger;
-
-// /**
-//  * A Utility class for tracing code execution time. Will put info to NetworkTables under the
-//  * "Tracer" table.
-//  *
-//  * <pre><code>
-//  *
-//  * @Override
-//  * public void loopFunc() {
-//  *    Tracer.traceFunc("LoopFunc", super::loopFunc);
-//  * }
-//  *
-//  * <p>
-//  *
-//  * @Override
-//  * public void robotPeriodic() {
-//  *     Tracer.startTrace("RobotPeriodic");
-//  *     Tracer.traceFunc("CommandScheduler", scheduler::run);
-//  *     Tracer.traceFunc("Monologue", Monologue::updateAll);
-//  *     Tracer.endTrace();
-//  * }
-//  *
-//  * </code></pre>
-//  */
-// public class Tracer {
-//   private static final class TraceStartData {
-//     private double startTime = 0.0;
-//     private double startGCTotalTime = 0.0;
-
-//     private void set(double startTime, double startGCTotalTime) {
-//       this.startTime = startTime;
-//       this.startGCTotalTime = startGCTotalTime;
-//     }
-//   }
-
-//   /**
-//    * All of the tracers persistent state in a single object to be stored in a {@link
-// ThreadLocal}.
-//    */
-//   private static final class TracerState {
-//     private final NetworkTable rootTable;
-
-//     // the stack of traces, every startTrace will add to this stack
-//     // and every endTrace will remove from this stack
-//     private final ArrayList<String> traceStack = new ArrayList<>();
-//     // ideally we only need `traceStack` but in the interest of memory optimization
-//     // and string concatenation speed we store the history of the stack to reuse the stack names
-//     private final ArrayList<String> traceStackHistory = new ArrayList<>();
-//     // the time of each trace, the key is the trace name, modified every endTrace
-//     private final HashMap<String, Double> traceTimes = new HashMap<>();
-//     // the start time of each trace and the gc time at the start of the trace,
-//     // the key is the trace name, modified every startTrace and endTrace.
-//     private final HashMap<String, TraceStartData> traceStartTimes = new HashMap<>();
-//     // the publishers for each trace, the key is the trace name, modified every endCycle
-//     private final HashMap<String, DoublePublisher> publisherHeap = new HashMap<>();
-
-//     // the garbage collector beans
-//     private final ArrayList<GarbageCollectorMXBean> gcs =
-//         new ArrayList<>(ManagementFactory.getGarbageCollectorMXBeans());
-//     private final DoublePublisher gcTimeEntry;
-//     private double gcTimeThisCycle = 0.0;
-
-//     private TracerState(String threadName) {
-//       this.rootTable =
-// NetworkTableInstance.getDefault().getTable("Tracer").getSubTable(threadName);
-//       this.gcTimeEntry =
-//           rootTable.getDoubleTopic("GCTime").publishEx("double", "{ \"cached\": false}");
-//     }
-
-//     private String appendTraceStack(String trace) {
-//       traceStack.add(trace);
-//       StringBuilder sb = new StringBuilder();
-//       for (int i = 0; i < traceStack.size(); i++) {
-//         sb.append(traceStack.get(i));
-//         if (i < traceStack.size() - 1) {
-//           sb.append("/");
-//         }
-//       }
-//       String str = sb.toString();
-//       traceStackHistory.add(str);
-//       return str;
-//     }
-
-//     private String popTraceStack() {
-//       traceStack.remove(traceStack.size() - 1);
-//       return traceStackHistory.remove(traceStackHistory.size() - 1);
-//     }
-
-//     private double totalGCTime() {
-//       double gcTime = 0;
-//       for (GarbageCollectorMXBean gc : gcs) {
-//         gcTime += gc.getCollectionTime();
-//       }
-//       return gcTime;
-//     }
-
-//     private void endCycle() {
-//       // update times for all already existing publishers
-//       for (var publisher : publisherHeap.entrySet()) {
-//         // if the entry isn't found, time will null-cast to 0.0
-//         Double time = traceTimes.remove(publisher.getKey());
-//         if (time == null) time = 0.0;
-//         publisher.getValue().set(time);
-//       }
-//       // create publishers for all new entries
-//       for (var traceTime : traceTimes.entrySet()) {
-//         DoublePublisher publisher =
-//             rootTable
-//                 .getDoubleTopic(traceTime.getKey())
-//                 .publishEx("double", "{ \"cached\": false}");
-//         publisher.set(traceTime.getValue());
-//         publisherHeap.put(traceTime.getKey(), publisher);
-//       }
-
-//       // log gc time
-//       if (gcs.size() > 0) gcTimeEntry.set(gcTimeThisCycle);
-//       gcTimeThisCycle = 0.0;
-
-//       // clean up state
-//       traceTimes.clear();
-//       traceStackHistory.clear();
-//     }
-//   }
-
-//   private static final ThreadLocal<TracerState> threadLocalState =
-//       ThreadLocal.withInitial(
-//           () -> {
-//             return new TracerState(Thread.currentThread().getName());
-//           });
-
-//   public static void disableGcLoggingForCurrentThread() {
-//     TracerState state = threadLocalState.get();
-//     state.gcTimeEntry.close();
-//     state.gcs.clear();
-//   }
-
-//   private static void startTrace(final String name, final TracerState state) {
-//     String stack = state.appendTraceStack(name);
-//     TraceStartData data = state.traceStartTimes.get(stack);
-//     if (data == null) {
-//       data = new TraceStartData();
-//       state.traceStartTimes.put(stack, data);
-//     }
-//     data.set(Logger.getRealTimestamp() / 1000.0, state.totalGCTime());
-//   }
-
-//   private static void endTrace(final TracerState state) {
-//     try {
-//       String stack = state.popTraceStack();
-//       var startData = state.traceStartTimes.get(stack);
-//       double gcTimeSinceStart = state.totalGCTime() - startData.startGCTotalTime;
-//       state.gcTimeThisCycle += gcTimeSinceStart;
-//       state.traceTimes.put(
-//           stack, Logger.getRealTimestamp() / 1000.0 - startData.startTime - gcTimeSinceStart);
-//       if (state.traceStack.size() == 0) {
-//         state.endCycle();
-//       }
-//     } catch (Exception e) {
-//       DriverStation.reportError(
-//           "[Tracer] An end trace was called with no opening trace " + e, true);
-//     }
-//   }
-
-//   /**
-//    * Starts a trace, should be called at the beginning of a function thats not being called by
-// user
-//    * code. Should be paired with {@link Tracer#endTrace()} at the end of the function.
-//    *
-//    * <p>Best used in periodic functions in Subsystems and Robot.java.
-//    *
-//    * @param name the name of the trace, should be unique to the function.
-//    */
-//   public static void startTrace(String name) {
-//     startTrace(name, threadLocalState.get());
-//   }
-
-//   /**
-//    * Ends a trace, should only be called at the end of a function thats not being called by user
-//    * code. If a {@link Tracer#startTrace(String)} is not paired with a {@link Tracer#endTrace()}
-//    * there could be a crash.
-//    */
-//   public static void endTrace() {
-//     endTrace(threadLocalState.get());
-//   }
-
-//   /**
-//    * Traces a function, should be used in place of {@link Tracer#startTrace(String)} and {@link
-//    * Tracer#endTrace()} for functions called by user code like {@code CommandScheduler.run()} and
-//    * other expensive functions.
-//    *
-//    * @param name the name of the trace, should be unique to the function.
-//    * @param runnable the function to trace.
-//    * @apiNote If you want to return a value then use {@link Tracer#traceFunc(String, Supplier)}.
-//    */
-//   public static void traceFunc(String name, Runnable runnable) {
-//     final TracerState state = threadLocalState.get();
-//     startTrace(name, state);
-//     runnable.run();
-//     endTrace(state);
-//   }
-
-//   /**
-//    * Traces a function, should be used in place of {@link Tracer#startTrace(String)} and {@link
-//    * Tracer#endTrace()} for functions called by user code like {@code CommandScheduler.run()} and
-//    * other expensive functions.
-//    *
-//    * @param name the name of the trace, should be unique to the function.
-//    * @param supplier the function to trace.
-//    */
-//   public static <T> T traceFunc(String name, Supplier<T> supplier) {
-//     final TracerState state = threadLocalState.get();
-//     startTrace(name, state);
-//     T ret = supplier.get();
-//     endTrace(state);
-//     return ret;
-//   }
-// }
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * A utility class for tracing code execution time. Puts the time of every trace, in milliseconds,
+ * under the "Tracer" NetworkTables table and the "Tracer" log key.
+ *
+ * <pre><code>
+ * private static final int ROBOT_PERIODIC = Tracer.intern("RobotPeriodic");
+ *
+ * &#64;Override
+ * public void robotPeriodic() {
+ *   Tracer.startTrace(ROBOT_PERIODIC);
+ *   CommandScheduler.getInstance().run();
+ *   Tracer.endTrace();
+ * }
+ * </code></pre>
+ *
+ * <p>Traces nest. A trace started inside another is its child, so the same name under different
+ * parents is timed separately, e.g. "RobotPeriodic/Drive". When the outermost trace ends the cycle
+ * is published and every trace that did not run that cycle reports zero.
+ *
+ * <p>Names are interned to int ids once, and each distinct path gets a node the first time it is
+ * seen. After that, tracing is a stack push and pop plus {@link System#nanoTime()} reads into
+ * primitive arrays, with no allocation. Garbage collection time is read at every trace boundary
+ * and is taken out of the trace it happened in, then reported for the whole cycle as "GCTime".
+ * Tracing is off until {@link #setEnabled} turns it on, and when disabled every method returns
+ * immediately.
+ *
+ * <p>The tracer is not thread safe, only trace from the main robot thread.
+ */
+public class Tracer {
+  private static final String ROOT_KEY = "Tracer";
+  private static final int MAX_DEPTH = 32;
+  private static final int NO_NODE = -1;
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  private static boolean enabled = false;
+
+  // Interned names
+  private static final HashMap<String, Integer> nameIds = new HashMap<>();
+  private static String[] names = new String[16];
+  private static int nameCount = 0;
+
+  // One node per distinct trace path, children kept as linked lists
+  private static int[] nodeName = new int[16];
+  private static int[] nodeFirstChild = new int[16];
+  private static int[] nodeNextSibling = new int[16];
+  private static long[] nodeNanos = new long[16]; // Time this cycle, GC excluded
+  private static String[] nodeLogKeys = new String[16];
+  private static DoublePublisher[] nodePublishers = new DoublePublisher[16];
+  private static int nodeCount = 0;
+  private static int firstRoot = NO_NODE;
+
+  // Open traces
+  private static final int[] stackNodes = new int[MAX_DEPTH];
+  private static final long[] stackStartNanos = new long[MAX_DEPTH];
+  private static final long[] stackStartGcMillis = new long[MAX_DEPTH];
+  private static int depth = 0;
+  private static int overflowDepth = 0; // Traces past MAX_DEPTH, counted but not timed
+
+  private static final GarbageCollectorMXBean[] gcs =
+      ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+  private static long gcMillisThisCycle = 0;
+  private static long gcCountAtCycleStart = 0;
+
+  private static NetworkTable rootTable = null;
+  private static DoublePublisher gcTimePublisher = null;
+  private static DoublePublisher gcCountPublisher = null;
+
+  private Tracer() {}
+
+  /** Enables or disables tracing. Open traces are discarded. */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+    depth = 0;
+    overflowDepth = 0;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the id for a trace name, creating it on first use. Ids should be looked up once, e.g.
+   * in a static field, and passed to {@link #startTrace(int)}.
+   */
+  public static int intern(String name) {
+    Integer id = nameIds.get(name);
+    if (id != null) {
+      return id;
+    }
+    if (nameCount == names.length) {
+      names = Arrays.copyOf(names, nameCount * 2);
+    }
+    names[nameCount] = name;
+    nameIds.put(name, nameCount);
+    return nameCount++;
+  }
+
+  /**
+   * Starts a trace, should be called at the beginning of a function thats not being called by user
+   * code. Should be paired with {@link Tracer#endTrace()} at the end of the function.
+   *
+   * @param nameId the id from {@link #intern(String)} of a name unique to the function.
+   */
+  public static void startTrace(int nameId) {
+    if (!enabled) {
+      return;
+    }
+    if (depth == MAX_DEPTH) {
+      overflowDepth++;
+      return;
+    }
+    if (depth == 0) {
+      gcMillisThisCycle = 0;
+      gcCountAtCycleStart = totalGcCount();
+    }
+    int parent = depth == 0 ? NO_NODE : stackNodes[depth - 1];
+    stackNodes[depth] = findOrCreateNode(parent, nameId);
+    stackStartGcMillis[depth] = totalGcMillis();
+    stackStartNanos[depth] = System.nanoTime();
+    depth++;
+  }
+
+  /** Starts a trace by name. Prefer {@link #startTrace(int)} in code that runs every loop. */
+  public static void startTrace(String name) {
+    if (enabled) {
+      startTrace(intern(name));
+    }
+  }
+
+  /**
+   * Ends a trace, should only be called at the end of a function thats not being called by user
+   * code. Every {@link Tracer#startTrace(int)} must be paired with an {@link Tracer#endTrace()}.
+   */
+  public static void endTrace() {
+    if (!enabled) {
+      return;
+    }
+    if (overflowDepth > 0) {
+      overflowDepth--;
+      return;
+    }
+    if (depth == 0) {
+      DriverStation.reportError("[Tracer] An end trace was called with no opening trace", true);
+      return;
+    }
+    long endNanos = System.nanoTime();
+    depth--;
+    long gcMillis = totalGcMillis() - stackStartGcMillis[depth];
+    long elapsedNanos = endNanos - stackStartNanos[depth] - gcMillis * 1_000_000L;
+    nodeNanos[stackNodes[depth]] += Math.max(0, elapsedNanos);
+    if (depth == 0) {
+      // Only the outermost trace counts GC, nested traces would count it again
+      gcMillisThisCycle = gcMillis;
+      endCycle();
+    }
+  }
+
+  /**
+   * Traces a function, should be used in place of {@link Tracer#startTrace(int)} and {@link
+   * Tracer#endTrace()} for functions called by user code like {@code CommandScheduler.run()} and
+   * other expensive functions.
+   *
+   * @param nameId the id from {@link #intern(String)} of a name unique to the function.
+   * @param runnable the function to trace.
+   */
+  public static void traceFunc(int nameId, Runnable runnable) {
+    startTrace(nameId);
+    try {
+      runnable.run();
+    } finally {
+      endTrace();
+    }
+  }
+
+  /**
+   * Traces a function that returns a value, see {@link #traceFunc(int, Runnable)}.
+   *
+   * @param nameId the id from {@link #intern(String)} of a name unique to the function.
+   * @param supplier the function to trace.
+   */
+  public static <T> T traceFunc(int nameId, Supplier<T> supplier) {
+    startTrace(nameId);
+    try {
+      return supplier.get();
+    } finally {
+      endTrace();
+    }
+  }
+
+  private static int findOrCreateNode(int parent, int nameId) {
+    int child = parent == NO_NODE ? firstRoot : nodeFirstChild[parent];
+    while (child != NO_NODE) {
+      if (nodeName[child] == nameId) {
+        return child;
+      }
+      child = nodeNextSibling[child];
+    }
+
+    // First time this path has been traced, the only time a node allocates
+    if (nodeCount == nodeName.length) {
+      int capacity = nodeCount * 2;
+      nodeName = Arrays.copyOf(nodeName, capacity);
+      nodeFirstChild = Arrays.copyOf(nodeFirstChild, capacity);
+      nodeNextSibling = Arrays.copyOf(nodeNextSibling, capacity);
+      nodeNanos = Arrays.copyOf(nodeNanos, capacity);
+      nodeLogKeys = Arrays.copyOf(nodeLogKeys, capacity);
+      nodePublishers = Arrays.copyOf(nodePublishers, capacity);
+    }
+    int node = nodeCount++;
+    String path =
+        parent == NO_NODE
+            ? names[nameId]
+            : nodeLogKeys[parent].substring(ROOT_KEY.length() + 1) + "/" + names[nameId];
+    nodeName[node] = nameId;
+    nodeFirstChild[node] = NO_NODE;
+    nodeLogKeys[node] = ROOT_KEY + "/" + path;
+    nodePublishers[node] = getRootTable().getDoubleTopic(path).publish();
+    if (parent == NO_NODE) {
+      nodeNextSibling[node] = firstRoot;
+      firstRoot = node;
+    } else {
+      nodeNextSibling[node] = nodeFirstChild[parent];
+      nodeFirstChild[parent] = node;
+    }
+    return node;
+  }
+
+  private static void endCycle() {
+    for (int node = 0; node < nodeCount; node++) {
+      double millis = nodeNanos[node] / NANOS_PER_MILLI;
+      nodePublishers[node].set(millis);
+      Logger.recordOutput(nodeLogKeys[node], millis);
+      nodeNanos[node] = 0;
+    }
+    long gcCount = totalGcCount() - gcCountAtCycleStart;
+    getRootTable();
+    gcTimePublisher.set(gcMillisThisCycle);
+    gcCountPublisher.set(gcCount);
+    Logger.recordOutput(ROOT_KEY + "/GCTime", (double) gcMillisThisCycle);
+    Logger.recordOutput(ROOT_KEY + "/GCCount", gcCount);
+  }
+
+  private static NetworkTable getRootTable() {
+    if (rootTable == null) {
+      rootTable = NetworkTableInstance.getDefault().getTable(ROOT_KEY);
+      gcTimePublisher = rootTable.getDoubleTopic("GCTime").publish();
+      gcCountPublisher = rootTable.getDoubleTopic("GCCount").publish();
+    }
+    return rootTable;
+  }
+
+  private static long totalGcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : gcs) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+
+  private static long totalGcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : gcs) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+}
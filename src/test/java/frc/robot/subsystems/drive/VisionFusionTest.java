@@ -0,0 +1,92 @@
+package frc.robot.subsystems.drive;
+
+import static frc.robot.subsystems.drive.DriveConstants.DEFAULT_VISION_STD_DEVS;
+import static frc.robot.subsystems.drive.DriveConstants.ODOMETRY_STATE_STD_DEVS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link VisionFusion} against the {@link SwerveDrivePoseEstimator} it replaced, fed the
+ * same odometry and vision.
+ */
+class VisionFusionTest {
+  private static final double DT = 0.02;
+  private static final int STEPS = 150;
+
+  // The estimator corrects along a twist and fusion along a straight line, which only differ by
+  // the square of a small correction
+  private static final double TRANSLATION_TOLERANCE = 1e-3;
+  private static final double ROTATION_TOLERANCE = 1e-3;
+
+  private final SwerveDriveKinematics kinematics =
+      new SwerveDriveKinematics(
+          new Translation2d(0.3, 0.3),
+          new Translation2d(0.3, -0.3),
+          new Translation2d(-0.3, 0.3),
+          new Translation2d(-0.3, -0.3));
+
+  @Test
+  void matchesPoseEstimatorWithDefaultStdDevs() {
+    Pose2d start = new Pose2d(2.0, 4.0, Rotation2d.fromDegrees(30));
+    Rotation2d gyro = new Rotation2d();
+    SwerveModulePosition[] positions = modulePositions(0.0, Rotation2d.fromDegrees(20));
+
+    // The estimator with WPILib's defaults is the behaviour fusion has to keep
+    SwerveDrivePoseEstimator estimator =
+        new SwerveDrivePoseEstimator(kinematics, gyro, positions, start);
+    SwerveDriveOdometry odometry = new SwerveDriveOdometry(kinematics, gyro, positions, start);
+    VisionFusion fusion = new VisionFusion(1, 512, 4, ODOMETRY_STATE_STD_DEVS);
+    fusion.resetPose(start);
+
+    Pose2d[] odometryPoses = new Pose2d[STEPS];
+    double[] timestamps = new double[STEPS];
+    for (int i = 0; i < STEPS; i++) {
+      double timestamp = (i + 1) * DT;
+      gyro = Rotation2d.fromRadians((i + 1) * 0.01);
+      positions = modulePositions((i + 1) * 0.04, Rotation2d.fromDegrees(20));
+
+      estimator.updateWithTime(timestamp, gyro, positions);
+      fusion.addOdometrySample(timestamp, odometry.update(gyro, positions));
+      odometryPoses[i] = odometry.getPoseMeters();
+      timestamps[i] = timestamp;
+
+      // Measurements from a few loops back, at sample times so neither side interpolates
+      if (i == 60 || i == 100 || i == 120) {
+        int measured = i - 8;
+        Pose2d visionPose =
+            odometryPoses[measured].transformBy(new Transform2d(0.3, -0.2, new Rotation2d(0.05)));
+        estimator.addVisionMeasurement(visionPose, timestamps[measured]);
+        fusion.addMeasurement(0, timestamps[measured], visionPose, DEFAULT_VISION_STD_DEVS);
+        fusion.applyMeasurements();
+      }
+
+      Pose2d expected = estimator.getEstimatedPosition();
+      Pose2d actual = fusion.getEstimatedPose();
+      assertEquals(expected.getX(), actual.getX(), TRANSLATION_TOLERANCE, "x at step " + i);
+      assertEquals(expected.getY(), actual.getY(), TRANSLATION_TOLERANCE, "y at step " + i);
+      assertEquals(
+          0.0,
+          expected.getRotation().minus(actual.getRotation()).getRadians(),
+          ROTATION_TOLERANCE,
+          "theta at step " + i);
+    }
+    assertEquals(3, fusion.getAppliedMeasurements());
+  }
+
+  private static SwerveModulePosition[] modulePositions(double distance, Rotation2d angle) {
+    SwerveModulePosition[] positions = new SwerveModulePosition[4];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = new SwerveModulePosition(distance, angle);
+    }
+    return positions;
+  }
+}
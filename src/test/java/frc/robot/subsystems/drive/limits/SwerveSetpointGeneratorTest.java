@@ -0,0 +1,116 @@
+package frc.robot.subsystems.drive.limits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.junit.jupiter.api.Test;
+
+class SwerveSetpointGeneratorTest {
+  private static final double DT = 0.02;
+  private static final double EPSILON = 1e-6;
+  private static final ModuleLimits LIMITS = new ModuleLimits(5.0, 10.0, 5.0);
+  private static final Translation2d[] MODULES = {
+    new Translation2d(0.3, 0.3),
+    new Translation2d(0.3, -0.3),
+    new Translation2d(-0.3, 0.3),
+    new Translation2d(-0.3, -0.3)
+  };
+
+  @Test
+  void stepRequestIsAccelerationLimited() {
+    SwerveSetpointGenerator generator = stoppedAt(0.0, 0.0, 0.0, 0.0);
+    double maxStep = LIMITS.maxDriveAcceleration() * DT;
+    for (int i = 1; i <= 30; i++) {
+      SwerveSetpoint setpoint = generator.generate(new ChassisSpeeds(4.0, 0.0, 0.0), DT);
+      double expected = Math.min(maxStep * i, 4.0);
+      assertEquals(expected, setpoint.chassisSpeeds().vxMetersPerSecond, EPSILON);
+      for (SwerveModuleState state : setpoint.moduleStates()) {
+        assertEquals(expected, state.speedMetersPerSecond, EPSILON);
+        assertEquals(0.0, state.angle.getRadians(), EPSILON);
+      }
+    }
+  }
+
+  @Test
+  void reversalFlipsTheWheelInsteadOfTurning() {
+    SwerveSetpointGenerator generator = stoppedAt(0.0, 0.0, 0.0, 0.0);
+    run(generator, new ChassisSpeeds(2.0, 0.0, 0.0), 20);
+
+    SwerveSetpoint setpoint = null;
+    for (int i = 0; i < 40; i++) {
+      setpoint = generator.generate(new ChassisSpeeds(-2.0, 0.0, 0.0), DT);
+      for (SwerveModuleState state : setpoint.moduleStates()) {
+        assertTrue(Math.abs(MathUtil.angleModulus(state.angle.getRadians())) <= Math.PI / 2.0);
+      }
+    }
+    assertEquals(-2.0, setpoint.chassisSpeeds().vxMetersPerSecond, EPSILON);
+    for (SwerveModuleState state : setpoint.moduleStates()) {
+      assertEquals(-2.0, state.speedMetersPerSecond, EPSILON);
+      assertEquals(0.0, state.angle.getRadians(), EPSILON);
+    }
+  }
+
+  @Test
+  void movingModulesTurnNoFasterThanTheSteeringLimit() {
+    SwerveSetpointGenerator generator = stoppedAt(0.0, 0.0, 0.0, 0.0);
+    run(generator, new ChassisSpeeds(2.0, 0.0, 0.0), 20);
+
+    double maxHeadingStep = LIMITS.maxSteeringVelocity() * DT;
+    double[] previous = headings(generator.getSetpoint());
+    for (int i = 0; i < 60; i++) {
+      double[] current = headings(generator.generate(new ChassisSpeeds(0.0, 2.0, 0.0), DT));
+      for (int j = 0; j < current.length; j++) {
+        double change = Math.abs(MathUtil.angleModulus(current[j] - previous[j]));
+        assertTrue(change <= maxHeadingStep + EPSILON, "module " + j + " turned " + change);
+      }
+      previous = current;
+    }
+    for (double heading : previous) {
+      assertEquals(Math.PI / 2.0, heading, EPSILON);
+    }
+  }
+
+  @Test
+  void resetHoldsMeasuredHeadings() {
+    double[] measured = {0.5, -1.0, 2.0, 3.0};
+    SwerveSetpointGenerator generator = stoppedAt(measured);
+    SwerveSetpoint setpoint = generator.generate(new ChassisSpeeds(), DT);
+    assertEquals(0.0, setpoint.chassisSpeeds().vxMetersPerSecond, EPSILON);
+    assertEquals(0.0, setpoint.chassisSpeeds().vyMetersPerSecond, EPSILON);
+    assertEquals(0.0, setpoint.chassisSpeeds().omegaRadiansPerSecond, EPSILON);
+    for (int i = 0; i < measured.length; i++) {
+      SwerveModuleState state = setpoint.moduleStates()[i];
+      assertEquals(0.0, state.speedMetersPerSecond, EPSILON);
+      assertEquals(measured[i], state.angle.getRadians(), EPSILON);
+    }
+  }
+
+  private static SwerveSetpointGenerator stoppedAt(double... headings) {
+    SwerveSetpointGenerator generator = new SwerveSetpointGenerator(MODULES, LIMITS);
+    SwerveModuleState[] states = new SwerveModuleState[headings.length];
+    for (int i = 0; i < headings.length; i++) {
+      states[i] = new SwerveModuleState(0.0, new Rotation2d(headings[i]));
+    }
+    generator.reset(states);
+    return generator;
+  }
+
+  private static void run(SwerveSetpointGenerator generator, ChassisSpeeds speeds, int loops) {
+    for (int i = 0; i < loops; i++) {
+      generator.generate(speeds, DT);
+    }
+  }
+
+  private static double[] headings(SwerveSetpoint setpoint) {
+    double[] headings = new double[setpoint.moduleStates().length];
+    for (int i = 0; i < headings.length; i++) {
+      headings[i] = setpoint.moduleStates()[i].angle.getRadians();
+    }
+    return headings;
+  }
+}
@@ -0,0 +1,124 @@
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.littletonrobotics.junction.LogTable;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+/** Checks that targets read back from the log match the ones written, field for field. */
+class TrackedTargetLogTest {
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void roundTripPreservesEveryField() {
+    List<PhotonTrackedTarget> targets =
+        List.of(
+            target(1.5, new Transform3d(2.0, -0.5, 0.3, new Rotation3d(0.1, -0.2, 0.3))),
+            target(-7.25, new Transform3d(4.5, 1.25, -0.1, new Rotation3d(-0.4, 0.05, 2.5))));
+    LogTable table = new LogTable(0);
+    new TrackedTargetLog().write(targets, table);
+
+    assertTargetsEqual(targets, TrackedTargetLog.read(table));
+  }
+
+  @Test
+  void rewritesOnlyChangedFields() {
+    TrackedTargetLog log = new TrackedTargetLog();
+    LogTable table = new LogTable(0);
+    Transform3d transform = new Transform3d(3.0, 0.0, 0.5, new Rotation3d());
+    log.write(List.of(target(1.0, transform)), table);
+    double[] bestTransforms = table.get(TrackedTargetLog.BEST_TRANSFORM_KEY, new double[] {});
+
+    // Same transform, so that field keeps the array already in the table
+    List<PhotonTrackedTarget> changed = List.of(target(2.0, transform));
+    log.write(changed, table);
+    assertSame(bestTransforms, table.get(TrackedTargetLog.BEST_TRANSFORM_KEY, new double[] {}));
+    assertTargetsEqual(changed, TrackedTargetLog.read(table));
+
+    // The target count changing must not leave stale values behind
+    List<PhotonTrackedTarget> more = List.of(target(3.0, transform), target(4.0, transform));
+    log.write(more, table);
+    assertTargetsEqual(more, TrackedTargetLog.read(table));
+
+    log.write(List.of(), table);
+    assertEquals(0, TrackedTargetLog.read(table).size());
+  }
+
+  // Every field gets a distinct value derived from the yaw, so swapped fields don't match
+  private static PhotonTrackedTarget target(double yaw, Transform3d best) {
+    Transform3d alt =
+        new Transform3d(
+            best.getX() + 0.5,
+            best.getY() - 0.5,
+            best.getZ() + 0.25,
+            best.getRotation().plus(new Rotation3d(0.0, 0.0, 0.2)));
+    return new PhotonTrackedTarget(
+        yaw,
+        yaw + 1.0,
+        yaw + 2.0,
+        yaw + 3.0,
+        (int) Math.abs(yaw) + 4,
+        best,
+        alt,
+        0.05 * Math.abs(yaw),
+        corners(yaw + 100.0),
+        corners(yaw + 200.0));
+  }
+
+  private static List<TargetCorner> corners(double base) {
+    return List.of(
+        new TargetCorner(base, base + 1.0),
+        new TargetCorner(base + 2.0, base + 3.0),
+        new TargetCorner(base + 4.0, base + 5.0),
+        new TargetCorner(base + 6.0, base + 7.0));
+  }
+
+  private static void assertTargetsEqual(
+      List<PhotonTrackedTarget> expected, List<PhotonTrackedTarget> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      PhotonTrackedTarget e = expected.get(i);
+      PhotonTrackedTarget a = actual.get(i);
+      assertEquals(e.getYaw(), a.getYaw(), EPSILON);
+      assertEquals(e.getPitch(), a.getPitch(), EPSILON);
+      assertEquals(e.getArea(), a.getArea(), EPSILON);
+      assertEquals(e.getSkew(), a.getSkew(), EPSILON);
+      assertEquals(e.getFiducialId(), a.getFiducialId());
+      assertEquals(e.getPoseAmbiguity(), a.getPoseAmbiguity(), EPSILON);
+      assertTransformEquals(e.getBestCameraToTarget(), a.getBestCameraToTarget());
+      assertTransformEquals(e.getAlternateCameraToTarget(), a.getAlternateCameraToTarget());
+      assertCornersEqual(e.getDetectedCorners(), a.getDetectedCorners());
+      assertCornersEqual(e.getMinAreaRectCorners(), a.getMinAreaRectCorners());
+    }
+  }
+
+  private static void assertTransformEquals(Transform3d expected, Transform3d actual) {
+    Translation3d e = expected.getTranslation();
+    Translation3d a = actual.getTranslation();
+    assertEquals(e.getX(), a.getX(), EPSILON);
+    assertEquals(e.getY(), a.getY(), EPSILON);
+    assertEquals(e.getZ(), a.getZ(), EPSILON);
+    Quaternion eq = expected.getRotation().getQuaternion();
+    Quaternion aq = actual.getRotation().getQuaternion();
+    assertEquals(eq.getW(), aq.getW(), EPSILON);
+    assertEquals(eq.getX(), aq.getX(), EPSILON);
+    assertEquals(eq.getY(), aq.getY(), EPSILON);
+    assertEquals(eq.getZ(), aq.getZ(), EPSILON);
+  }
+
+  private static void assertCornersEqual(List<TargetCorner> expected, List<TargetCorner> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).x, actual.get(i).x, EPSILON);
+      assertEquals(expected.get(i).y, actual.get(i).y, EPSILON);
+    }
+  }
+}
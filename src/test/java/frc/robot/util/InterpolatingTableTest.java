@@ -0,0 +1,101 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class InterpolatingTableTest {
+  private static final double EPSILON = 1e-9;
+
+  // Uneven keys so lookups take the binary search
+  private static final double[][] ROWS = {
+    {0.0, 10.0, 100.0},
+    {1.0, 20.0, 80.0},
+    {3.0, 30.0, 80.0},
+    {4.0, 50.0, 40.0}
+  };
+
+  @Test
+  void rejectsUnsortedKeys() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new InterpolatingTable(new double[][] {{0.0, 1.0}, {2.0, 2.0}, {1.0, 3.0}}));
+  }
+
+  @Test
+  void rejectsDuplicateKeys() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new InterpolatingTable(new double[][] {{0.0, 1.0}, {1.0, 2.0}, {1.0, 3.0}}));
+  }
+
+  @Test
+  void rejectsMalformedRows() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new InterpolatingTable(new double[][] {{0.0, 1.0}}));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new InterpolatingTable(new double[][] {{0.0, 1.0}, {1.0, 2.0, 3.0}}));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new InterpolatingTable(new double[][] {{0.0, 1.0}, {Double.NaN, 2.0}}));
+  }
+
+  @Test
+  void rejectedReloadKeepsPreviousTable() {
+    InterpolatingTable table = new InterpolatingTable(ROWS);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> table.reload(new double[][] {{0.0, 1.0, 1.0}, {0.0, 2.0, 2.0}}));
+    assertEquals(25.0, table.get(2.0, 1), EPSILON);
+  }
+
+  @Test
+  void interpolatesBetweenKeys() {
+    InterpolatingTable table = new InterpolatingTable(ROWS);
+    assertEquals(15.0, table.get(0.5, 1), EPSILON);
+    assertEquals(90.0, table.get(0.5, 2), EPSILON);
+    assertEquals(25.0, table.get(2.0, 1), EPSILON);
+    assertEquals(40.0, table.get(3.5, 1), EPSILON);
+    assertEquals(30.0, table.get(3.0, 1), EPSILON);
+
+    double[] out = new double[2];
+    table.getAll(3.5, out);
+    assertEquals(40.0, out[0], EPSILON);
+    assertEquals(60.0, out[1], EPSILON);
+  }
+
+  @Test
+  void usesEndSegmentsAtBothEnds() {
+    InterpolatingTable table = new InterpolatingTable(ROWS);
+    // Exactly on the first and last keys
+    assertEquals(10.0, table.get(0.0, 1), EPSILON);
+    assertEquals(50.0, table.get(4.0, 1), EPSILON);
+    // Past either end the first or last segment is extended, like the original lookup
+    assertEquals(0.0, table.get(-1.0, 1), EPSILON);
+    assertEquals(120.0, table.get(-1.0, 2), EPSILON);
+    assertEquals(70.0, table.get(5.0, 1), EPSILON);
+    assertEquals(0.0, table.get(5.0, 2), EPSILON);
+  }
+
+  @Test
+  void evenlySpacedKeysMatchInterpolation() {
+    InterpolatingTable table =
+        new InterpolatingTable(new double[][] {{1.0, 0.0}, {2.0, 10.0}, {3.0, 40.0}, {4.0, 0.0}});
+    assertEquals(5.0, table.get(1.5, 1), EPSILON);
+    assertEquals(10.0, table.get(2.0, 1), EPSILON);
+    assertEquals(25.0, table.get(2.5, 1), EPSILON);
+    assertEquals(40.0, table.get(3.0, 1), EPSILON);
+    assertEquals(20.0, table.get(3.5, 1), EPSILON);
+    assertEquals(-10.0, table.get(0.0, 1), EPSILON);
+    assertEquals(-40.0, table.get(5.0, 1), EPSILON);
+  }
+
+  @Test
+  void rejectsKeyColumnLookup() {
+    InterpolatingTable table = new InterpolatingTable(ROWS);
+    assertThrows(IndexOutOfBoundsException.class, () -> table.get(1.0, 0));
+    assertThrows(IndexOutOfBoundsException.class, () -> table.get(1.0, 3));
+  }
+}